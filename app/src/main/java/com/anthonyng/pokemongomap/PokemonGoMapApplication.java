@@ -0,0 +1,219 @@
+package com.anthonyng.pokemongomap;
+
+import android.app.Application;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.anthonyng.pokemongomap.data.PokemonCatalog;
+import com.anthonyng.pokemongomap.data.SightingDatabase;
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.metrics.MetricsExporter;
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.preference.AppPreferences;
+import com.anthonyng.pokemongomap.preference.PokemonFilter;
+import com.anthonyng.pokemongomap.scan.AdaptiveScanPlanner;
+import com.anthonyng.pokemongomap.scan.PokemonScanner;
+import com.anthonyng.pokemongomap.scan.PredictiveScanScheduler;
+import com.anthonyng.pokemongomap.scan.PtcSessionFactory;
+import com.anthonyng.pokemongomap.scan.ScanAccount;
+import com.anthonyng.pokemongomap.scan.ScanConfig;
+import com.anthonyng.pokemongomap.scan.SessionPool;
+import com.anthonyng.pokemongomap.scan.SpawnPointTracker;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFeed;
+import com.anthonyng.pokemongomap.sighting.SightingStore;
+import com.anthonyng.pokemongomap.util.ImageUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds state that outlives a single activity, such as logged in Pokemon Go sessions
+ */
+public class PokemonGoMapApplication extends Application {
+
+    private static final String TAG = "PokemonGoMapApplication";
+
+    // Username and password of every Pokemon Trainer Club account to scan with, each account adds
+    // its own sessions and request budget
+    private static final String[][] PTC_ACCOUNTS = {
+            {"pokemongoapitest", "pokemongo"},
+    };
+
+    private static final long METRICS_EXPORT_PERIOD_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final long METRICS_MAX_FILE_BYTES = 512 * 1024;
+    private static final int METRICS_MAX_FILES = 4;
+
+    private ScanConfig scanConfig;
+    private PokemonFilter pokemonFilter;
+    private PokemonScanner pokemonScanner;
+    private AdaptiveScanPlanner scanPlanner;
+    private SpawnPointTracker spawnPointTracker;
+    private PredictiveScanScheduler predictiveScanScheduler;
+    private PokemonCatalog pokemonCatalog;
+    private SightingDatabase sightingDatabase;
+    private SightingFeed sightingFeed;
+
+    private PipelineMetrics pipelineMetrics;
+    private ScheduledExecutorService metricsExecutor;
+    private ScheduledFuture<?> metricsExport;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        ImageUtil.loadPokemonDrawableResourceIds(this);
+        SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(this);
+        pokemonFilter = new PokemonFilter(preferences);
+
+        pipelineMetrics = new PipelineMetrics();
+        metricsExecutor = Executors.newSingleThreadScheduledExecutor();
+        setMetricsEnabled(preferences.getBoolean(AppPreferences.PREFERENCE_KEY_DEBUG_METRICS, false));
+
+        // The overall ceiling grows with the accounts so it does not cancel out what they add
+        scanConfig = ScanConfig.create()
+                .setRequestRate(ScanConfig.DEFAULT_REQUESTS_PER_SECOND * PTC_ACCOUNTS.length,
+                        ScanConfig.DEFAULT_REQUEST_BURST * PTC_ACCOUNTS.length);
+
+        List<SessionPool> sessionPools = new ArrayList<>();
+        List<ScanAccount> scanAccounts = new ArrayList<>();
+        for (String[] account : PTC_ACCOUNTS) {
+            SessionPool sessionPool = new SessionPool(new PtcSessionFactory(account[0], account[1]),
+                    scanConfig.getParallelism(), pipelineMetrics);
+            sessionPools.add(sessionPool);
+            scanAccounts.add(new ScanAccount(account[0], sessionPool));
+        }
+        pokemonScanner = new PokemonScanner(scanAccounts, scanConfig, pokemonFilter, pipelineMetrics);
+        scanPlanner = new AdaptiveScanPlanner(HexGrid.DEFAULT_SPACING_METERS);
+        spawnPointTracker = new SpawnPointTracker();
+        predictiveScanScheduler = new PredictiveScanScheduler(pokemonScanner, spawnPointTracker,
+                PredictiveScanScheduler.DEFAULT_PERIOD_MS);
+        sightingDatabase = new SightingDatabase(this);
+        sightingFeed = new SightingFeed(new SightingStore());
+
+        // Log in ahead of time so the first scan does not wait on authentication
+        for (SessionPool sessionPool : sessionPools) {
+            sessionPool.warmUp();
+        }
+
+        // Parse the catalog in the background so opening the filter screen does not have to
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                getPokemonCatalog();
+            }
+        }).start();
+    }
+
+    /**
+     * Adds a newly scanned sighting to the shared sightings and saves it, can be called from any
+     * thread
+     *
+     * @return True if the sighting was new
+     */
+    public boolean publishSighting(Sighting sighting) {
+        if (!sightingFeed.publish(sighting)) {
+            pipelineMetrics.increment(PipelineMetrics.Counter.DUPLICATES, 1);
+            return false;
+        }
+
+        sightingDatabase.save(sighting);
+        return true;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    /**
+     * Turns the pipeline metrics on or off. While on, a snapshot is appended to a rolling log in
+     * the app's external files every few seconds so it can be pulled off the device with adb.
+     */
+    public synchronized void setMetricsEnabled(boolean enabled) {
+        PreferenceManager.getDefaultSharedPreferences(this).edit()
+                .putBoolean(AppPreferences.PREFERENCE_KEY_DEBUG_METRICS, enabled)
+                .apply();
+        pipelineMetrics.setEnabled(enabled);
+
+        if (metricsExport != null) {
+            metricsExport.cancel(false);
+            metricsExport = null;
+        }
+
+        File directory = getExternalFilesDir("metrics");
+        if (!enabled || directory == null) {
+            return;
+        }
+
+        pipelineMetrics.reset();
+        final MetricsExporter exporter = new MetricsExporter(directory, "pipeline",
+                METRICS_MAX_FILE_BYTES, METRICS_MAX_FILES);
+        metricsExport = metricsExecutor.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    exporter.append(pipelineMetrics.toJson(System.currentTimeMillis()));
+                } catch (IOException e) {
+                    Log.w(TAG, "Unable to export metrics", e);
+                }
+            }
+        }, METRICS_EXPORT_PERIOD_MS, METRICS_EXPORT_PERIOD_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public ScanConfig getScanConfig() {
+        return scanConfig;
+    }
+
+    public PokemonScanner getPokemonScanner() {
+        return pokemonScanner;
+    }
+
+    public AdaptiveScanPlanner getScanPlanner() {
+        return scanPlanner;
+    }
+
+    public SpawnPointTracker getSpawnPointTracker() {
+        return spawnPointTracker;
+    }
+
+    public PredictiveScanScheduler getPredictiveScanScheduler() {
+        return predictiveScanScheduler;
+    }
+
+    public SightingFeed getSightingFeed() {
+        return sightingFeed;
+    }
+
+    public SightingDatabase getSightingDatabase() {
+        return sightingDatabase;
+    }
+
+    public PokemonFilter getPokemonFilter() {
+        return pokemonFilter;
+    }
+
+    /**
+     * @return Every pokemon listed in the assets, read the first time it is needed
+     */
+    public synchronized PokemonCatalog getPokemonCatalog() {
+        if (pokemonCatalog == null) {
+            try {
+                InputStream inputStream = getAssets().open(PokemonCatalog.ASSET_FILE_NAME);
+                pokemonCatalog = PokemonCatalog.read(inputStream);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to read " + PokemonCatalog.ASSET_FILE_NAME, e);
+                throw new IllegalStateException(e);
+            }
+        }
+
+        return pokemonCatalog;
+    }
+}
@@ -7,6 +7,7 @@ import android.content.pm.PackageManager;
 import android.location.Location;
 import android.location.LocationManager;
 import android.os.Bundle;
+import android.os.Handler;
 import android.preference.PreferenceManager;
 import android.support.design.widget.Snackbar;
 import android.support.v4.app.ActivityCompat;
@@ -17,11 +18,29 @@ import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.TextView;
 
+import com.anthonyng.pokemongomap.PokemonGoMapApplication;
 import com.anthonyng.pokemongomap.R;
+import com.anthonyng.pokemongomap.data.SightingDatabase;
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.map.MarkerRenderer;
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
 import com.anthonyng.pokemongomap.preference.AppPreferences;
-import com.anthonyng.pokemongomap.util.ImageUtil;
-import com.anthonyng.pokemongomap.util.LocationUtil;
+import com.anthonyng.pokemongomap.preference.PokemonFilter;
+import com.anthonyng.pokemongomap.scan.AdaptiveScanPlanner;
+import com.anthonyng.pokemongomap.scan.CellResult;
+import com.anthonyng.pokemongomap.scan.CoverageTracker;
+import com.anthonyng.pokemongomap.scan.PokemonScanner;
+import com.anthonyng.pokemongomap.scan.PredictiveScanScheduler;
+import com.anthonyng.pokemongomap.scan.ScanCell;
+import com.anthonyng.pokemongomap.scan.ScanTimings;
+import com.anthonyng.pokemongomap.scan.SpawnPointTracker;
+import com.anthonyng.pokemongomap.service.ScanService;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFeed;
+import com.anthonyng.pokemongomap.sighting.SightingStore;
+import com.anthonyng.pokemongomap.util.TimingWheel;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.location.LocationListener;
@@ -31,25 +50,21 @@ import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
-import com.pokegoapi.api.PokemonGo;
-import com.pokegoapi.api.map.pokemon.CatchablePokemon;
-import com.pokegoapi.auth.PtcCredentialProvider;
-import com.pokegoapi.exceptions.LoginFailedException;
-import com.pokegoapi.exceptions.RemoteServerException;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Callable;
 
-import okhttp3.OkHttpClient;
 import rx.Observable;
 import rx.Subscriber;
+import rx.Subscription;
 import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action1;
 import rx.schedulers.Schedulers;
 
 /**
@@ -62,6 +77,15 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
 
     private static final String TAG = "MapsActivity";
     private static final int REQUEST_ACCESS_FINE_LOCATION = 1;
+    // Radius scanned when the visible region is not known yet
+    private static final float DEFAULT_SCAN_RADIUS_METERS = 2000;
+    private static final long EXPIRY_TICK_MS = 1000;
+    private static final long DEBUG_OVERLAY_REFRESH_MS = 1000;
+    private static final int EXPIRY_WHEEL_SLOTS = 1024;
+    // Area around the last camera position whose saved sightings are shown at launch
+    private static final double WARM_START_RADIUS_METERS = 3000;
+    // Distance the user has to walk before the newly uncovered cells are scanned
+    private static final double MOVE_THRESHOLD_METERS = HexGrid.DEFAULT_SPACING_METERS / 2;
 
     private GoogleMap googleMap;
 
@@ -69,8 +93,38 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     private LocationRequest locationRequest;
     private Marker selectedMarker;
     private boolean zoomedIntoCurrentLocation = false;
-
-    private HashSet<String> pokemonSet = new HashSet<>();
+    // First location fix if it arrived before the map was ready, it is handled once the map is
+    private Location pendingFirstLocation;
+    // True while scans follow the user rather than a location picked on the map
+    private boolean followingUser = false;
+    private CoverageTracker coverageTracker;
+
+    private SightingFeed sightingFeed;
+    private SightingStore sightingStore;
+    private Subscription sightingFeedSubscription;
+    private MarkerRenderer markerRenderer;
+
+    private Handler handler = new Handler();
+    private TimingWheel<Sighting> expiryWheel = new TimingWheel<>(
+            EXPIRY_TICK_MS, EXPIRY_WHEEL_SLOTS, System.currentTimeMillis());
+    private boolean expiryTicking = false;
+
+    private PokemonScanner pokemonScanner;
+    private AdaptiveScanPlanner scanPlanner;
+    private Subscription scanSubscription;
+    private SpawnPointTracker spawnPointTracker;
+    private PredictiveScanScheduler predictiveScanScheduler;
+    private Subscription predictiveScanSubscription;
+
+    private PokemonGoMapApplication application;
+    private SightingDatabase sightingDatabase;
+    private PokemonFilter pokemonFilter;
+    private SharedPreferences preferences;
+    private CameraPosition lastCameraPosition;
+    private Subscription warmStartSubscription;
+
+    private PipelineMetrics pipelineMetrics;
+    private TextView debugOverlay;
 
 
     //region Lifecycle and Activity methods
@@ -83,6 +137,29 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
 
+        application = (PokemonGoMapApplication) getApplication();
+        pokemonScanner = application.getPokemonScanner();
+        scanPlanner = application.getScanPlanner();
+        spawnPointTracker = application.getSpawnPointTracker();
+        predictiveScanScheduler = application.getPredictiveScanScheduler();
+        // Cells are scanned again once the scanner would no longer answer them from its cache
+        coverageTracker = new CoverageTracker(MOVE_THRESHOLD_METERS,
+                application.getScanConfig().getCacheTimeToLiveMs());
+        sightingDatabase = application.getSightingDatabase();
+        pokemonFilter = application.getPokemonFilter();
+        preferences = PreferenceManager.getDefaultSharedPreferences(this);
+        sightingFeed = application.getSightingFeed();
+        sightingStore = sightingFeed.getStore();
+        pipelineMetrics = application.getPipelineMetrics();
+        debugOverlay = (TextView) findViewById(R.id.debug_overlay);
+        watchSightings();
+
+        // Show what was still valid when the app was last used while the first scan runs
+        lastCameraPosition = readLastCameraPosition();
+        if (lastCameraPosition != null) {
+            loadSavedSightings(lastCameraPosition.target);
+        }
+
         // Obtain the SupportMapFragment and get notified when the map is ready to be used.
         SupportMapFragment mapFragment = (SupportMapFragment) getSupportFragmentManager()
                 .findFragmentById(R.id.map);
@@ -109,6 +186,13 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         return true;
     }
 
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        menu.findItem(R.id.action_background_scan).setChecked(ScanService.isRunning());
+        menu.findItem(R.id.action_debug_metrics).setChecked(pipelineMetrics.isEnabled());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
@@ -116,6 +200,21 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                 startActivity(new Intent(this, FilterPokemonActivity.class));
                 return true;
 
+            case R.id.action_background_scan:
+                if (item.isChecked()) {
+                    ScanService.stop(this);
+                } else {
+                    ScanService.start(this);
+                }
+                item.setChecked(!item.isChecked());
+                return true;
+
+            case R.id.action_debug_metrics:
+                application.setMetricsEnabled(!item.isChecked());
+                item.setChecked(!item.isChecked());
+                updateDebugOverlay();
+                return true;
+
             default:
                 // If we got here, the user's action was not recognized.
                 // Invoke the superclass to handle it.
@@ -124,9 +223,54 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         }
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        // Keep the watched area up to date while the map is visible
+        predictiveScanSubscription = predictiveScanScheduler.results()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Action1<CellResult>() {
+                    @Override
+                    public void call(CellResult cellResult) {
+                        int newSightings = showCellResult(cellResult);
+                        Log.i(TAG, "Rescanned a cell with a predicted spawn, " + newSightings + " new sightings");
+                    }
+                });
+
+        updateDebugOverlay();
+    }
+
+    @Override
+    protected void onStop() {
+        predictiveScanSubscription.unsubscribe();
+        handler.removeCallbacks(debugOverlayTick);
+        super.onStop();
+    }
+
+    @Override
+    protected void onPause() {
+        if (googleMap != null) {
+            saveLastCameraPosition(googleMap.getCameraPosition());
+        }
+        sightingDatabase.flushNow();
+        super.onPause();
+    }
+
     @Override
     protected void onDestroy() {
         googleApiClient.disconnect();
+        handler.removeCallbacks(expiryTick);
+        if (scanSubscription != null) {
+            scanSubscription.unsubscribe();
+        }
+        if (warmStartSubscription != null) {
+            warmStartSubscription.unsubscribe();
+        }
+        sightingFeedSubscription.unsubscribe();
+        if (markerRenderer != null) {
+            markerRenderer.release();
+        }
         super.onDestroy();
     }
 
@@ -161,6 +305,20 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     public void onMapReady(final GoogleMap googleMap) {
         this.googleMap = googleMap;
         this.googleMap.setMyLocationEnabled(true);
+
+        markerRenderer = new MarkerRenderer(this, googleMap, sightingStore, pipelineMetrics);
+        this.googleMap.setOnCameraChangeListener(markerRenderer);
+        this.googleMap.setOnMarkerClickListener(markerRenderer);
+        if (lastCameraPosition != null && !zoomedIntoCurrentLocation) {
+            this.googleMap.moveCamera(CameraUpdateFactory.newCameraPosition(lastCameraPosition));
+        }
+        // Saved sightings may have been loaded before the map was ready
+        markerRenderer.refresh();
+        if (pendingFirstLocation != null) {
+            Location firstLocation = pendingFirstLocation;
+            pendingFirstLocation = null;
+            zoomIntoFirstLocation(firstLocation);
+        }
         this.googleMap.setOnMapClickListener(new GoogleMap.OnMapClickListener() {
             @Override
             public void onMapClick(LatLng latLng) {
@@ -172,7 +330,9 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                 selectedMarker = googleMap.addMarker(new MarkerOptions()
                         .position(latLng));
 
-                // Retrieve pokemon within the area
+                // Retrieve pokemon within the area, scanning it in full rather than what is new
+                followingUser = false;
+                coverageTracker.reset();
                 Location location = new Location(LocationManager.GPS_PROVIDER);
                 location.setLatitude(latLng.latitude);
                 location.setLongitude(latLng.longitude);
@@ -181,37 +341,166 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
         });
     }
 
+    //endregion
+
+    //region Saved sightings
+
+    /**
+     * Shows the saved sightings around a location that have not expired yet
+     */
+    private void loadSavedSightings(final LatLng location) {
+        warmStartSubscription = Observable.fromCallable(new Callable<List<Sighting>>() {
+            @Override
+            public List<Sighting> call() throws Exception {
+                return sightingDatabase.loadNear(location.latitude, location.longitude,
+                        WARM_START_RADIUS_METERS, System.currentTimeMillis());
+            }
+        })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Action1<List<Sighting>>() {
+                    @Override
+                    public void call(List<Sighting> sightings) {
+                        long now = System.currentTimeMillis();
+                        for (Sighting sighting : sightings) {
+                            // The filter may have changed since the sighting was saved
+                            if (!sighting.isExpired(now) && pokemonFilter.accept(sighting)) {
+                                sightingFeed.publish(sighting);
+                            }
+                        }
+                        Log.i(TAG, "Loaded " + sightings.size() + " saved sightings");
+                    }
+                }, new Action1<Throwable>() {
+                    @Override
+                    public void call(Throwable e) {
+                        Log.e(TAG, "Unable to load saved sightings", e);
+                    }
+                });
+    }
+
+    private CameraPosition readLastCameraPosition() {
+        if (!preferences.contains(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_LATITUDE)) {
+            return null;
+        }
+
+        LatLng target = new LatLng(
+                Double.longBitsToDouble(preferences.getLong(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_LATITUDE, 0)),
+                Double.longBitsToDouble(preferences.getLong(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_LONGITUDE, 0)));
+        return CameraPosition.fromLatLngZoom(target,
+                preferences.getFloat(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_ZOOM, 16.0f));
+    }
+
+    private void saveLastCameraPosition(CameraPosition cameraPosition) {
+        preferences.edit()
+                .putLong(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_LATITUDE,
+                        Double.doubleToRawLongBits(cameraPosition.target.latitude))
+                .putLong(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_LONGITUDE,
+                        Double.doubleToRawLongBits(cameraPosition.target.longitude))
+                .putFloat(AppPreferences.PREFERENCE_KEY_LAST_CAMERA_ZOOM, cameraPosition.zoom)
+                .apply();
+    }
+
+    //endregion
+
+    //region Marker expiry
+
     /**
-     * Places a marker according associated with the pokemon
+     * Places new sightings on the map and schedules their removal, wherever they were scanned.
+     * Sightings that were already known when the activity was created get their removal
+     * scheduled here as well, their markers come from the first render.
+     */
+    private void watchSightings() {
+        sightingFeedSubscription = sightingFeed.newSightings()
+                .onBackpressureBuffer()
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Action1<Sighting>() {
+                    @Override
+                    public void call(Sighting sighting) {
+                        // Skip sightings that expired before reaching the main thread
+                        if (!sightingStore.contains(sighting)) {
+                            return;
+                        }
+
+                        // Before the map is ready the sighting is picked up by the first render
+                        if (markerRenderer != null) {
+                            markerRenderer.onSightingAdded(sighting);
+                        }
+                        scheduleExpiry(sighting);
+                    }
+                });
+
+        List<Sighting> knownSightings = new ArrayList<>();
+        sightingStore.query(-90, -180, 90, 180, knownSightings);
+        for (Sighting sighting : knownSightings) {
+            scheduleExpiry(sighting);
+        }
+    }
+
+    /**
+     * Removes the marker of the pokemon once it expires. All markers share a single tick that
+     * only runs while there is something left to expire.
      *
-     * @param catchablePokemon
+     * @param sighting
      */
-    private void placePokemonOnMap(CatchablePokemon catchablePokemon) {
-        LatLng location = new LatLng(catchablePokemon.getLatitude(), catchablePokemon.getLongitude());
-
-        // Get the image associated with the pokemon
-        int drawableResourceId = ImageUtil.getPokemonDrawableResourceId(
-                getApplicationContext(), catchablePokemon.getPokemonId().getNumber());
-
-        // Place the marker on the map
-        Marker pokemonMarker = googleMap.addMarker(new MarkerOptions()
-                .position(location)
-                .title(catchablePokemon.getPokemonId().name())
-                .icon(BitmapDescriptorFactory.fromResource(drawableResourceId)));
-
-        // Set expiration time
-        if (catchablePokemon.getExpirationTimestampMs() != -1) {
-            long remainingDuration = catchablePokemon.getExpirationTimestampMs() - System.currentTimeMillis();
-            String expirationTime = String.format("%d min, %d sec",
-                    TimeUnit.MILLISECONDS.toMinutes(remainingDuration),
-                    TimeUnit.MILLISECONDS.toSeconds(remainingDuration) -
-                            TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(remainingDuration))
-            );
-
-            pokemonMarker.setSnippet(expirationTime);
+    private void scheduleExpiry(Sighting sighting) {
+        expiryWheel.schedule(sighting, sighting.getExpirationTimestampMs());
+
+        if (!expiryTicking) {
+            expiryTicking = true;
+            handler.postDelayed(expiryTick, EXPIRY_TICK_MS);
         }
     }
 
+    private final Runnable expiryTick = new Runnable() {
+        @Override
+        public void run() {
+            expiryWheel.advance(System.currentTimeMillis(), expiryListener);
+
+            if (expiryWheel.size() > 0) {
+                handler.postDelayed(this, EXPIRY_TICK_MS);
+            } else {
+                expiryTicking = false;
+            }
+        }
+    };
+
+    private final TimingWheel.ExpiryListener<Sighting> expiryListener = new TimingWheel.ExpiryListener<Sighting>() {
+        @Override
+        public void onExpired(Sighting sighting) {
+            sightingStore.remove(sighting);
+            if (markerRenderer != null) {
+                markerRenderer.onSightingRemoved(sighting);
+            }
+        }
+    };
+
+    //endregion
+
+    //region Debug metrics
+
+    /**
+     * Shows the pipeline metrics over the map and keeps them refreshed while they are enabled
+     */
+    private void updateDebugOverlay() {
+        handler.removeCallbacks(debugOverlayTick);
+
+        if (!pipelineMetrics.isEnabled()) {
+            debugOverlay.setVisibility(View.GONE);
+            return;
+        }
+
+        debugOverlay.setVisibility(View.VISIBLE);
+        debugOverlayTick.run();
+    }
+
+    private final Runnable debugOverlayTick = new Runnable() {
+        @Override
+        public void run() {
+            debugOverlay.setText(pipelineMetrics.toSummary());
+            handler.postDelayed(this, DEBUG_OVERLAY_REFRESH_MS);
+        }
+    };
+
     //endregion
 
     //region Google Play Services Methods
@@ -238,20 +527,54 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     public void onLocationChanged(Location location) {
         if (location != null) {
             if (!zoomedIntoCurrentLocation) {
-                LatLng loc = new LatLng(location.getLatitude(), location.getLongitude());
-                if (googleMap != null) {
-                    googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(loc, 16.0f));
+                if (googleMap == null) {
+                    // Location updates can start before the map is ready, keep the latest fix until it is
+                    pendingFirstLocation = location;
+                    return;
                 }
 
-                selectedMarker = googleMap.addMarker(new MarkerOptions()
-                        .position(loc));
-
-                zoomedIntoCurrentLocation = true;
+                zoomIntoFirstLocation(location);
+            } else if (followingUser && coverageTracker.hasMovedAway(location.getLatitude(), location.getLongitude())) {
+                // Only the cells the user walked into are scanned
+                if (selectedMarker != null) {
+                    selectedMarker.setPosition(new LatLng(location.getLatitude(), location.getLongitude()));
+                }
                 requestPokemonInLocation(location);
             }
         }
     }
 
+    /**
+     * Marks the user's location, zooms in on it and scans it once the camera got there, since the
+     * scan is sized to the visible region
+     */
+    private void zoomIntoFirstLocation(final Location location) {
+        LatLng loc = new LatLng(location.getLatitude(), location.getLongitude());
+
+        zoomedIntoCurrentLocation = true;
+        followingUser = true;
+
+        if (selectedMarker != null) {
+            selectedMarker.remove();
+        }
+        selectedMarker = googleMap.addMarker(new MarkerOptions()
+                .position(loc));
+
+        googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(loc, 16.0f),
+                new GoogleMap.CancelableCallback() {
+                    @Override
+                    public void onFinish() {
+                        requestPokemonInLocation(location);
+                    }
+
+                    @Override
+                    public void onCancel() {
+                        // The user moved the map before the camera got there, the scan stays centered on them
+                        requestPokemonInLocation(location);
+                    }
+                });
+    }
+
     @Override
     public void onConnected(Bundle bundle) {
         LocationServices.FusedLocationApi.requestLocationUpdates(googleApiClient, locationRequest, this);
@@ -278,50 +601,39 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
     //region Network Requests
 
     /**
-     * Request pokemon in the area
+     * Request pokemon in the area. A new request cancels the scan that is still in progress, so
+     * only the latest location is scanned. Cells recently scanned around the previous location are
+     * not requested again, including cells of a cancelled scan that did complete.
      *
      * @param location Location to retrieve pokemon in area
      */
     private void requestPokemonInLocation(final Location location) {
+        if (scanSubscription != null) {
+            scanSubscription.unsubscribe();
+        }
 
-        Observable<List<CatchablePokemon>> catchablePokemonObservable = Observable.create(new Observable.OnSubscribe<List<CatchablePokemon>>() {
-
-            @Override
-            public void call(Subscriber<? super List<CatchablePokemon>> subscriber) {
-                List<LatLng> scanMap = new ArrayList<LatLng>();
-                makeHexScanMap(new LatLng(location.getLatitude(), location.getLongitude()), 12, 1, scanMap);
-                List<CatchablePokemon> catchablePokemonList = new ArrayList<>();
-
-                try {
-                    // Log into Pokemon Go
-                    OkHttpClient okHttpClient = new OkHttpClient();
-                    PokemonGo pokemonGo = new PokemonGo(new PtcCredentialProvider(okHttpClient, "pokemongoapitest", "pokemongo"), okHttpClient);
-
-                    for (LatLng latLng : scanMap) {
-                        // Set location
-                        pokemonGo.setLocation(latLng.latitude, latLng.longitude, 0);
-
-                        // Fetch pokemon in location
-                        catchablePokemonList.addAll(pokemonGo.getMap().getCatchablePokemon());
-                    }
-
-                } catch (LoginFailedException e) {
-                    subscriber.onError(e);
-                } catch (RemoteServerException e) {
-                    subscriber.onError(e);
-                }
+        // Cells are snapped to the lattice so overlapping scans can reuse cached cells
+        float radiusMeters = visibleRadiusMeters(location);
+        List<ScanCell> plannedCells = scanPlanner.plan(location.getLatitude(), location.getLongitude(), radiusMeters);
+        final List<ScanCell> cells = coverageTracker.moveTo(location.getLatitude(), location.getLongitude(),
+                plannedCells, System.currentTimeMillis());
+        final int plannedCount = plannedCells.size();
+        final int retiredCount = coverageTracker.getLastRetiredCount();
+        predictiveScanScheduler.setArea(location.getLatitude(), location.getLongitude(), radiusMeters);
 
-                subscriber.onNext(catchablePokemonList);
-                subscriber.onCompleted();
-            }
-        });
+        final ScanTimings scanTimings = new ScanTimings();
 
-        catchablePokemonObservable.subscribeOn(Schedulers.newThread())
+        scanSubscription = pokemonScanner.scan(cells)
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new Subscriber<List<CatchablePokemon>>() {
+                .subscribe(new Subscriber<CellResult>() {
                     @Override
                     public void onCompleted() {
-
+                        scanTimings.markCompleted();
+                        Log.i(TAG, "Scanned " + cells.size() + " new of " + plannedCount + " planned cells, "
+                                + retiredCount + " retired: first marker after "
+                                + scanTimings.getTimeToFirstResultMs() + " ms, completed after "
+                                + scanTimings.getTotalTimeMs() + " ms (" + pokemonScanner.getMetrics()
+                                + ", " + pokemonScanner.getRequestGovernor() + ")");
                     }
 
                     @Override
@@ -332,103 +644,65 @@ public class MapsActivity extends AppCompatActivity implements OnMapReadyCallbac
                                 .setAction(getString(R.string.snack_bar_retry), new View.OnClickListener() {
                                     @Override
                                     public void onClick(View v) {
-                                        requestPokemonInLocation(LocationUtil.latLngToLocation(selectedMarker.getPosition()));
+                                        requestPokemonInLocation(location);
                                     }
                                 }).show();
                     }
 
                     @Override
-                    public void onNext(List<CatchablePokemon> pokemonList) {
-                        for (CatchablePokemon catchablePokemon : pokemonList) {
-                            SharedPreferences preferences = PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
-
-                            // Check if user has filter
-                            boolean showPokemon = preferences.getBoolean(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON
-                                    + catchablePokemon.getPokemonId().getNumber(), true);
-
-                            if (showPokemon) {
-                                // Check if the pokemon is not already on the map
-                                if (!pokemonSet.contains(catchablePokemon.getSpawnPointId())) {
-                                    placePokemonOnMap(catchablePokemon);
-                                    pokemonSet.add(catchablePokemon.getSpawnPointId());
-                                }
-                            }
+                    public void onNext(CellResult cellResult) {
+                        if (!cellResult.isFromCache()) {
+                            // A cached result was fetched earlier than now, so it is left for the cache to answer
+                            coverageTracker.markScanned(cellResult.getCell().getKey(), System.currentTimeMillis());
+                            scanPlanner.record(cellResult);
+                            spawnPointTracker.record(cellResult, System.currentTimeMillis());
+                        }
+
+                        if (showCellResult(cellResult) > 0) {
+                            scanTimings.markResult();
                         }
                     }
                 });
 
     }
 
-    private List<LatLng> makeHexScanMap(LatLng loc, int steps, int layer_count, List<LatLng> scanMap) {
-        // Base case is do nothing
-        if (steps > 0) {
-            if (layer_count == 1) {
-                // Add in the point, no translation since 1st layer
-                scanMap.add(loc);
-            } else {
-                double distance = 200; // in meters
-                // add a point that is distance due north
-                scanMap.add(translate(loc, 0.0, distance));
-                // go south-east
-                for (int i = 0; i < layer_count - 1; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 120.0, distance);
-                    scanMap.add(next);
-                }
-                // go due south
-                for (int i = 0; i < layer_count - 1; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 180.0, distance);
-                    scanMap.add(next);
-                }
-                // go south-west
-                for (int i = 0; i < layer_count - 1; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 240.0, distance);
-                    scanMap.add(next);
-                }
-                // go north-west
-                for (int i = 0; i < layer_count - 1; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 300.0, distance);
-                    scanMap.add(next);
-                }
-                // go due north
-                for (int i = 0; i < layer_count - 1; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 0.0, distance);
-                    scanMap.add(next);
-                }
-                // go north-east
-                for (int i = 0; i < layer_count - 2; i++) {
-                    LatLng prev = scanMap.get(scanMap.size() - 1);
-                    LatLng next = translate(prev, 60.0, distance);
-                    scanMap.add(next);
-                }
+    /**
+     * Publishes the sightings of a scanned cell that are not on the map yet
+     *
+     * @return Number of sightings that were new
+     */
+    private int showCellResult(CellResult cellResult) {
+        int newSightings = 0;
+
+        // Filtered pokemon have already been dropped by the scanner, the marker is placed once
+        // the sighting reaches the feed
+        for (Sighting sighting : cellResult.getSightings()) {
+            // Check if the pokemon is not already on the map
+            if (application.publishSighting(sighting)) {
+                newSightings++;
             }
-            return makeHexScanMap(scanMap.get(hexagonal_number(layer_count - 1)), steps - 1, layer_count + 1, scanMap);
-        } else {
-            return scanMap;
         }
-    }
 
-    private LatLng translate(LatLng cur, double bearing, double distance) {
-        double earth = 6378.1; // Radius of Earth in km
-        double rad_bear = Math.toRadians(bearing);
-        double dist_km = distance / 1000;
-        double lat1 = Math.toRadians(cur.latitude);
-        double lon1 = Math.toRadians(cur.longitude);
-        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(dist_km / earth) +
-                Math.cos(lat1) * Math.sin(dist_km / earth) * Math.cos(rad_bear));
-        double lon2 = lon1 + Math.atan2(Math.sin(rad_bear) * Math.sin(dist_km / earth) * Math.cos(lat1),
-                Math.cos(dist_km / earth) - Math.sin(lat1) * Math.sin(lat2));
-        lat2 = Math.toDegrees(lat2);
-        lon2 = Math.toDegrees(lon2);
-        return new LatLng(lat2, lon2);
+        return newSightings;
     }
 
-    public int hexagonal_number(int n) {
-        return (n == 0) ? 0 : 3 * n * (n - 1) + 1;
+    /**
+     * @return Distance from the location to the farthest corner of the visible region
+     */
+    private float visibleRadiusMeters(Location location) {
+        if (googleMap == null) {
+            return DEFAULT_SCAN_RADIUS_METERS;
+        }
+
+        LatLngBounds bounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        float[] southwestDistance = new float[1];
+        float[] northeastDistance = new float[1];
+        Location.distanceBetween(location.getLatitude(), location.getLongitude(),
+                bounds.southwest.latitude, bounds.southwest.longitude, southwestDistance);
+        Location.distanceBetween(location.getLatitude(), location.getLongitude(),
+                bounds.northeast.latitude, bounds.northeast.longitude, northeastDistance);
+
+        return Math.max(southwestDistance[0], northeastDistance[0]);
     }
 
     //endregion
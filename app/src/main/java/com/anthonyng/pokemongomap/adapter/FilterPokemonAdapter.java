@@ -0,0 +1,86 @@
+package com.anthonyng.pokemongomap.adapter;
+
+import android.content.SharedPreferences;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.anthonyng.pokemongomap.R;
+import com.anthonyng.pokemongomap.data.PokemonCatalog;
+import com.anthonyng.pokemongomap.preference.AppPreferences;
+import com.anthonyng.pokemongomap.preference.PokemonFilter;
+import com.anthonyng.pokemongomap.util.ImageUtil;
+
+/**
+ * Rows of pokemon that can be shown or hidden on the map
+ */
+public class FilterPokemonAdapter extends RecyclerView.Adapter<FilterPokemonAdapter.ViewHolder> {
+
+    private final PokemonCatalog pokemonCatalog;
+    private final PokemonFilter pokemonFilter;
+    private final SharedPreferences preferences;
+
+    public FilterPokemonAdapter(PokemonCatalog pokemonCatalog, PokemonFilter pokemonFilter,
+                                SharedPreferences preferences) {
+        this.pokemonCatalog = pokemonCatalog;
+        this.pokemonFilter = pokemonFilter;
+        this.preferences = preferences;
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_filter_pokemon, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        int pokemonNumber = pokemonCatalog.getNumber(position);
+
+        holder.nameTextView.setText(pokemonCatalog.getName(position));
+        holder.iconImageView.setImageResource(ImageUtil.getPokemonDrawableResourceId(
+                holder.itemView.getContext(), pokemonNumber));
+        holder.showCheckBox.setChecked(pokemonFilter.isShown(pokemonNumber));
+    }
+
+    @Override
+    public int getItemCount() {
+        return pokemonCatalog.size();
+    }
+
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+
+        final ImageView iconImageView;
+        final TextView nameTextView;
+        final CheckBox showCheckBox;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            iconImageView = (ImageView) itemView.findViewById(R.id.image_view_pokemon_icon);
+            nameTextView = (TextView) itemView.findViewById(R.id.text_view_pokemon_name);
+            showCheckBox = (CheckBox) itemView.findViewById(R.id.check_box_show_pokemon);
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION) {
+                return;
+            }
+
+            boolean show = !showCheckBox.isChecked();
+            showCheckBox.setChecked(show);
+
+            // The pokemon filter picks the change up through its preference listener
+            preferences.edit()
+                    .putBoolean(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON + pokemonCatalog.getNumber(position), show)
+                    .apply();
+        }
+    }
+}
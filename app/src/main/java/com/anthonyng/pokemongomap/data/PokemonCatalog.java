@@ -0,0 +1,78 @@
+package com.anthonyng.pokemongomap.data;
+
+import android.util.JsonReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Number and name of every pokemon listed in pokemon.json. The file is streamed and only the
+ * fields that are needed are kept, the rest of each entry is skipped without being parsed.
+ */
+public class PokemonCatalog {
+
+    public static final String ASSET_FILE_NAME = "pokemon.json";
+
+    private final int[] numbers;
+    private final String[] names;
+
+    private PokemonCatalog(int[] numbers, String[] names) {
+        this.numbers = numbers;
+        this.names = names;
+    }
+
+    public static PokemonCatalog read(InputStream inputStream) throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                int number = 0;
+                String name = null;
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (field.equals("Number")) {
+                        number = Integer.parseInt(reader.nextString());
+                    } else if (field.equals("Name")) {
+                        name = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+
+                numbers.add(number);
+                names.add(name);
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+
+        int[] numberArray = new int[numbers.size()];
+        for (int i = 0; i < numberArray.length; i++) {
+            numberArray[i] = numbers.get(i);
+        }
+
+        return new PokemonCatalog(numberArray, names.toArray(new String[names.size()]));
+    }
+
+    public int size() {
+        return numbers.length;
+    }
+
+    public int getNumber(int position) {
+        return numbers[position];
+    }
+
+    public String getName(int position) {
+        return names[position];
+    }
+}
@@ -0,0 +1,204 @@
+package com.anthonyng.pokemongomap.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps unexpired sightings on the device so the map can show them again right after launch.
+ * Saved sightings are queued and written in a single transaction on a background thread, and
+ * expired rows are deleted as part of the same write.
+ */
+public class SightingDatabase extends SQLiteOpenHelper {
+
+    private static final String TAG = "SightingDatabase";
+
+    private static final String DATABASE_NAME = "sightings.db";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_SIGHTINGS = "sightings";
+    private static final String COLUMN_SPAWN_POINT_ID = "spawn_point_id";
+    private static final String COLUMN_ENCOUNTER_ID = "encounter_id";
+    private static final String COLUMN_POKEMON_NUMBER = "pokemon_number";
+    private static final String COLUMN_POKEMON_NAME = "pokemon_name";
+    private static final String COLUMN_LATITUDE = "latitude";
+    private static final String COLUMN_LONGITUDE = "longitude";
+    private static final String COLUMN_EXPIRATION_MS = "expiration_ms";
+
+    // Sightings arriving within this delay are written together
+    private static final long FLUSH_DELAY_MS = 1000;
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    private final ScheduledExecutorService writeExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Object pendingLock = new Object();
+    private List<Sighting> pending = new ArrayList<>();
+
+    public SightingDatabase(Context context) {
+        super(context.getApplicationContext(), DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_SIGHTINGS + " ("
+                + COLUMN_SPAWN_POINT_ID + " TEXT NOT NULL, "
+                + COLUMN_ENCOUNTER_ID + " INTEGER NOT NULL, "
+                + COLUMN_POKEMON_NUMBER + " INTEGER NOT NULL, "
+                + COLUMN_POKEMON_NAME + " TEXT, "
+                + COLUMN_LATITUDE + " REAL NOT NULL, "
+                + COLUMN_LONGITUDE + " REAL NOT NULL, "
+                + COLUMN_EXPIRATION_MS + " INTEGER NOT NULL, "
+                + "PRIMARY KEY (" + COLUMN_SPAWN_POINT_ID + ", " + COLUMN_ENCOUNTER_ID + "))");
+        db.execSQL("CREATE INDEX " + TABLE_SIGHTINGS + "_location ON " + TABLE_SIGHTINGS
+                + " (" + COLUMN_LATITUDE + ", " + COLUMN_LONGITUDE + ")");
+        db.execSQL("CREATE INDEX " + TABLE_SIGHTINGS + "_expiration ON " + TABLE_SIGHTINGS
+                + " (" + COLUMN_EXPIRATION_MS + ")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Sightings only live for minutes, there is nothing worth migrating
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SIGHTINGS);
+        onCreate(db);
+    }
+
+    /**
+     * Queues a sighting to be written, can be called from any thread
+     */
+    public void save(Sighting sighting) {
+        boolean scheduleFlush;
+        synchronized (pendingLock) {
+            scheduleFlush = pending.isEmpty();
+            pending.add(sighting);
+        }
+
+        if (scheduleFlush) {
+            writeExecutor.schedule(flushRunnable, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads the unexpired sightings around a location. Must not be called on the main thread.
+     *
+     * @param radiusMeters Half the side of the square area to read
+     */
+    public List<Sighting> loadNear(double latitude, double longitude, double radiusMeters, long nowMs) {
+        double latitudeDelta = radiusMeters / METERS_PER_DEGREE;
+        double longitudeDelta = radiusMeters
+                / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+
+        String selection = COLUMN_EXPIRATION_MS + " > ? AND "
+                + COLUMN_LATITUDE + " BETWEEN ? AND ?";
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(Long.toString(nowMs));
+        selectionArgs.add(Double.toString(latitude - latitudeDelta));
+        selectionArgs.add(Double.toString(latitude + latitudeDelta));
+
+        // Near the antimeridian the longitude range would wrap, latitude alone is enough there
+        if (Math.abs(longitude) + longitudeDelta < 180) {
+            selection += " AND " + COLUMN_LONGITUDE + " BETWEEN ? AND ?";
+            selectionArgs.add(Double.toString(longitude - longitudeDelta));
+            selectionArgs.add(Double.toString(longitude + longitudeDelta));
+        }
+
+        List<Sighting> sightings = new ArrayList<>();
+        Cursor cursor = getReadableDatabase().query(TABLE_SIGHTINGS, null, selection,
+                selectionArgs.toArray(new String[selectionArgs.size()]), null, null, null);
+        try {
+            int spawnPointIdIndex = cursor.getColumnIndexOrThrow(COLUMN_SPAWN_POINT_ID);
+            int encounterIdIndex = cursor.getColumnIndexOrThrow(COLUMN_ENCOUNTER_ID);
+            int pokemonNumberIndex = cursor.getColumnIndexOrThrow(COLUMN_POKEMON_NUMBER);
+            int pokemonNameIndex = cursor.getColumnIndexOrThrow(COLUMN_POKEMON_NAME);
+            int latitudeIndex = cursor.getColumnIndexOrThrow(COLUMN_LATITUDE);
+            int longitudeIndex = cursor.getColumnIndexOrThrow(COLUMN_LONGITUDE);
+            int expirationIndex = cursor.getColumnIndexOrThrow(COLUMN_EXPIRATION_MS);
+
+            while (cursor.moveToNext()) {
+                sightings.add(new Sighting(
+                        cursor.getString(spawnPointIdIndex),
+                        cursor.getLong(encounterIdIndex),
+                        cursor.getInt(pokemonNumberIndex),
+                        cursor.getString(pokemonNameIndex),
+                        cursor.getDouble(latitudeIndex),
+                        cursor.getDouble(longitudeIndex),
+                        cursor.getLong(expirationIndex)));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return sightings;
+    }
+
+    /**
+     * Writes the queued sightings without waiting for the flush delay, for when the app may be
+     * killed soon
+     */
+    public void flushNow() {
+        writeExecutor.execute(flushRunnable);
+    }
+
+    private void flush() {
+        List<Sighting> batch;
+        synchronized (pendingLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_SIGHTINGS + " ("
+                + COLUMN_SPAWN_POINT_ID + ", " + COLUMN_ENCOUNTER_ID + ", " + COLUMN_POKEMON_NUMBER + ", "
+                + COLUMN_POKEMON_NAME + ", " + COLUMN_LATITUDE + ", " + COLUMN_LONGITUDE + ", "
+                + COLUMN_EXPIRATION_MS + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+
+        db.beginTransaction();
+        try {
+            for (Sighting sighting : batch) {
+                insert.clearBindings();
+                insert.bindString(1, sighting.getSpawnPointId());
+                insert.bindLong(2, sighting.getEncounterId());
+                insert.bindLong(3, sighting.getPokemonNumber());
+                if (sighting.getPokemonName() != null) {
+                    insert.bindString(4, sighting.getPokemonName());
+                }
+                insert.bindDouble(5, sighting.getLatitude());
+                insert.bindDouble(6, sighting.getLongitude());
+                insert.bindLong(7, sighting.getExpirationTimestampMs());
+                insert.executeInsert();
+            }
+
+            db.delete(TABLE_SIGHTINGS, COLUMN_EXPIRATION_MS + " <= ?",
+                    new String[]{Long.toString(System.currentTimeMillis())});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // Losing a batch only costs a slower warm start, keep the writer alive
+                Log.e(TAG, "Unable to save sightings", e);
+            }
+        }
+    };
+}
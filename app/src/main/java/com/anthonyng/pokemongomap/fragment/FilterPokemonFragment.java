@@ -2,71 +2,41 @@ package com.anthonyng.pokemongomap.fragment;
 
 
 import android.os.Bundle;
-import android.preference.CheckBoxPreference;
-import android.preference.PreferenceCategory;
-import android.preference.PreferenceFragment;
-import android.preference.PreferenceScreen;
-
+import android.preference.PreferenceManager;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.anthonyng.pokemongomap.PokemonGoMapApplication;
 import com.anthonyng.pokemongomap.R;
-import com.anthonyng.pokemongomap.preference.AppPreferences;
-import com.anthonyng.pokemongomap.util.FileUtil;
-import com.anthonyng.pokemongomap.util.ImageUtil;
-
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.IOException;
-import java.io.InputStream;
+import com.anthonyng.pokemongomap.adapter.FilterPokemonAdapter;
 
 /**
  * Contains a list of pokemon that can be filtered from the map
  */
-public class FilterPokemonFragment extends PreferenceFragment {
+public class FilterPokemonFragment extends Fragment {
 
     public FilterPokemonFragment() {
         // Required empty public constructor
     }
 
     @Override
-    public void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-
-        PreferenceScreen preferenceScreen = getPreferenceManager()
-                .createPreferenceScreen(getActivity().getApplicationContext());
-
-        // Add a category
-        PreferenceCategory filterCategory = new PreferenceCategory(getActivity().getApplicationContext());
-        filterCategory.setTitle(getString(R.string.preference_category_filter_pokemon_title));
-        preferenceScreen.addPreference(filterCategory);
-
-        try {
-            // Read the pokemon.json file to obtain the list of pokemon
-            InputStream inputStream = getActivity().getApplicationContext().getAssets().open("pokemon.json");
-            String jsonPokemonString = FileUtil.inputStreamToString(inputStream);
-            JSONArray pokemonJsonArray = new JSONArray(jsonPokemonString);
-
-            // Go through each pokemon and add a checkbox preference
-            for(int i = 0; i < pokemonJsonArray.length(); i++){
-                JSONObject pokemonJsonObject = pokemonJsonArray.getJSONObject(i);
-
-                int pokemonNumber = Integer.parseInt(pokemonJsonObject.getString("Number"));
-
-                CheckBoxPreference checkBox = new CheckBoxPreference(getActivity().getApplicationContext());
-                checkBox.setTitle(pokemonJsonObject.getString("Name"));
-                checkBox.setIcon(ImageUtil.getPokemonDrawableResourceId(
-                        getActivity().getApplicationContext(), pokemonNumber));
-                checkBox.setDefaultValue(true);
-                checkBox.setKey(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON + pokemonNumber);
-
-                filterCategory.addPreference(checkBox);
-            }
-        } catch (IOException e) {
-            //
-        } catch (JSONException e) {
-
-        }
-
-        setPreferenceScreen(preferenceScreen);
+    public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        RecyclerView recyclerView = (RecyclerView) inflater.inflate(
+                R.layout.fragment_filter_pokemon, container, false);
+
+        // The catalog is parsed once per process and rows are only bound as they scroll into view
+        PokemonGoMapApplication application = (PokemonGoMapApplication) getActivity().getApplication();
+        recyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setAdapter(new FilterPokemonAdapter(
+                application.getPokemonCatalog(),
+                application.getPokemonFilter(),
+                PreferenceManager.getDefaultSharedPreferences(getActivity().getApplicationContext())));
+
+        return recyclerView;
     }
 }
@@ -0,0 +1,438 @@
+package com.anthonyng.pokemongomap.map;
+
+import android.content.Context;
+import android.os.Handler;
+import android.view.Choreographer;
+
+import com.anthonyng.pokemongomap.R;
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingCluster;
+import com.anthonyng.pokemongomap.sighting.SightingClusterer;
+import com.anthonyng.pokemongomap.sighting.SightingStore;
+import com.anthonyng.pokemongomap.util.CountdownFormatter;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import com.google.android.gms.maps.model.Marker;
+import com.google.android.gms.maps.model.MarkerOptions;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Keeps markers on the map for the sightings around the visible region only. When zoomed out,
+ * sightings that would overlap are drawn as a single cluster marker. Working out what to draw
+ * happens off the main thread, only adding and removing markers happens on it.
+ *
+ * Markers are not added or removed right away. The changes are queued and applied a few at a time
+ * on every frame within a fixed time budget, so a large render never holds up drawing. A marker
+ * that is removed before it was added, or added back before it was removed, never touches the map.
+ *
+ * Only the sighting whose info window is open shows a live countdown. A single tick refreshes it
+ * each time the seconds change and stops once the window closes, whatever the number of markers.
+ */
+public class MarkerRenderer implements GoogleMap.OnCameraChangeListener, GoogleMap.OnMarkerClickListener {
+
+    // Below this zoom level sightings are clustered
+    private static final int CLUSTER_MAX_ZOOM = 15;
+    private static final int CLUSTER_CELL_PIXELS = 64;
+    private static final int MAX_MARKERS = 300;
+
+    // Extra area around the visible region to render, as a fraction of its size
+    private static final double VIEWPORT_MARGIN = 0.25;
+    private static final long REFRESH_DELAY_MS = 250;
+
+    // Time spent changing markers on each frame, a quarter of a frame at 60 fps
+    private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    // How often an expired countdown is checked until its marker is removed
+    private static final long COUNTDOWN_EXPIRED_TICK_MS = 1000;
+
+    private final Context context;
+    private final GoogleMap googleMap;
+    private final SightingStore sightingStore;
+    private final PokemonIconCache iconCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final Handler handler = new Handler();
+
+    private final HashMap<Object, Marker> markers = new HashMap<>();
+    // Sighting of every single sighting marker, so a tapped marker is found without a search
+    private final HashMap<Marker, Sighting> sightingsByMarker = new HashMap<>();
+    private Subscription renderSubscription;
+
+    // Markers waiting to be added, nearest first, keyed like the markers. Values are the sighting
+    // of a single sighting marker or the cluster of a cluster marker.
+    private final LinkedHashMap<Object, Object> pendingAdditions = new LinkedHashMap<>();
+    // Keys of markers waiting to be removed
+    private final LinkedHashSet<Object> pendingRemovals = new LinkedHashSet<>();
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private boolean frameScheduled;
+
+    // Sighting marker whose info window shows the countdown
+    private final CountdownFormatter countdownFormatter = new CountdownFormatter();
+    private Marker countdownMarker;
+    private Sighting countdownSighting;
+
+    // Area and zoom of the last render
+    private LatLngBounds renderBounds;
+    private int renderZoom;
+
+    public MarkerRenderer(Context context, GoogleMap googleMap, SightingStore sightingStore) {
+        this(context, googleMap, sightingStore, new PipelineMetrics());
+    }
+
+    /**
+     * @param pipelineMetrics Receives the time taken to place every sighting marker
+     */
+    public MarkerRenderer(Context context, GoogleMap googleMap, SightingStore sightingStore,
+                          PipelineMetrics pipelineMetrics) {
+        this.context = context.getApplicationContext();
+        this.googleMap = googleMap;
+        this.sightingStore = sightingStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.iconCache = new PokemonIconCache(context);
+    }
+
+    @Override
+    public void onCameraChange(CameraPosition cameraPosition) {
+        refresh();
+    }
+
+    /**
+     * Starts the countdown of a sighting marker before its info window opens
+     */
+    @Override
+    public boolean onMarkerClick(Marker marker) {
+        stopCountdown();
+
+        Sighting sighting = sightingsByMarker.get(marker);
+        if (sighting != null) {
+            countdownMarker = marker;
+            countdownSighting = sighting;
+            handler.postDelayed(countdownTick, updateCountdown());
+        }
+
+        // Let the map center the marker and open its info window as usual
+        return false;
+    }
+
+    /**
+     * Queues the marker of a new sighting for the next frame if it is inside the rendered area,
+     * otherwise it is picked up by the next render
+     */
+    public void onSightingAdded(Sighting sighting) {
+        if (renderBounds == null) {
+            scheduleRefresh();
+            return;
+        }
+
+        if (!renderBounds.contains(new LatLng(sighting.getLatitude(), sighting.getLongitude()))) {
+            return;
+        }
+
+        if (renderZoom >= CLUSTER_MAX_ZOOM && markers.size() + pendingAdditions.size() < MAX_MARKERS) {
+            queueAddition(sighting, sighting);
+        } else {
+            scheduleRefresh();
+        }
+    }
+
+    public void onSightingRemoved(Sighting sighting) {
+        if (pendingAdditions.remove(sighting) != null) {
+            return;
+        }
+
+        if (markers.containsKey(sighting)) {
+            queueRemoval(sighting);
+        } else if (renderZoom < CLUSTER_MAX_ZOOM) {
+            // The sighting may be part of a cluster
+            scheduleRefresh();
+        }
+    }
+
+    /**
+     * Works out the markers for the current camera position
+     */
+    public void refresh() {
+        handler.removeCallbacks(refreshRunnable);
+
+        LatLngBounds visibleBounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+        final int zoom = (int) googleMap.getCameraPosition().zoom;
+
+        double latitudeMargin = (visibleBounds.northeast.latitude - visibleBounds.southwest.latitude) * VIEWPORT_MARGIN;
+        double longitudeSpan = visibleBounds.northeast.longitude - visibleBounds.southwest.longitude;
+        if (longitudeSpan < 0) {
+            longitudeSpan += 360;
+        }
+        double longitudeMargin = longitudeSpan * VIEWPORT_MARGIN;
+
+        final LatLngBounds bounds = new LatLngBounds(
+                new LatLng(Math.max(visibleBounds.southwest.latitude - latitudeMargin, -90),
+                        visibleBounds.southwest.longitude - longitudeMargin),
+                new LatLng(Math.min(visibleBounds.northeast.latitude + latitudeMargin, 90),
+                        visibleBounds.northeast.longitude + longitudeMargin));
+        final LatLng center = visibleBounds.getCenter();
+
+        if (renderSubscription != null) {
+            renderSubscription.unsubscribe();
+        }
+
+        renderSubscription = Observable.fromCallable(new Callable<List<SightingCluster>>() {
+            @Override
+            public List<SightingCluster> call() throws Exception {
+                List<Sighting> sightings = new ArrayList<>();
+                sightingStore.query(bounds.southwest.latitude, bounds.southwest.longitude,
+                        bounds.northeast.latitude, bounds.northeast.longitude, sightings);
+
+                if (zoom >= CLUSTER_MAX_ZOOM) {
+                    return SightingClusterer.single(sightings, MAX_MARKERS, center.latitude, center.longitude);
+                }
+
+                return SightingClusterer.cluster(sightings, zoom, CLUSTER_CELL_PIXELS, MAX_MARKERS,
+                        center.latitude, center.longitude);
+            }
+        })
+                .subscribeOn(Schedulers.computation())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Action1<List<SightingCluster>>() {
+                    @Override
+                    public void call(List<SightingCluster> clusters) {
+                        renderBounds = bounds;
+                        renderZoom = zoom;
+                        apply(clusters);
+                    }
+                });
+    }
+
+    /**
+     * Removes every marker and stops rendering
+     */
+    public void release() {
+        handler.removeCallbacks(refreshRunnable);
+        if (renderSubscription != null) {
+            renderSubscription.unsubscribe();
+        }
+
+        stopCountdown();
+        choreographer.removeFrameCallback(frameCallback);
+        frameScheduled = false;
+        pendingAdditions.clear();
+        pendingRemovals.clear();
+
+        for (Marker marker : markers.values()) {
+            marker.remove();
+        }
+        markers.clear();
+        sightingsByMarker.clear();
+    }
+
+    /**
+     * Queues the changes that make the markers on the map match the given clusters, leaving
+     * markers that did not change in place
+     */
+    private void apply(List<SightingCluster> clusters) {
+        HashMap<Object, SightingCluster> clustersByKey = new HashMap<>(clusters.size() * 2);
+        for (SightingCluster cluster : clusters) {
+            clustersByKey.put(cluster.getKey(), cluster);
+        }
+
+        for (Object key : markers.keySet()) {
+            if (!clustersByKey.containsKey(key)) {
+                pendingRemovals.add(key);
+            }
+        }
+
+        // Additions left over from the previous render are replaced by the ones of this render
+        pendingAdditions.clear();
+
+        for (SightingCluster cluster : clusters) {
+            Marker marker = markers.get(cluster.getKey());
+
+            if (marker != null) {
+                pendingRemovals.remove(cluster.getKey());
+                if (cluster.getSighting() == null) {
+                    // Same grid cell, but sightings may have come or gone since the last render. A
+                    // sighting can be swapped for another without changing the count, which moves
+                    // the cluster's center but keeps its title.
+                    String title = clusterTitle(cluster);
+                    if (!title.equals(marker.getTitle())) {
+                        marker.setTitle(title);
+                    }
+
+                    LatLng position = marker.getPosition();
+                    if (position.latitude != cluster.getLatitude() || position.longitude != cluster.getLongitude()) {
+                        marker.setPosition(new LatLng(cluster.getLatitude(), cluster.getLongitude()));
+                    }
+                }
+            } else if (cluster.getSighting() != null) {
+                pendingAdditions.put(cluster.getKey(), cluster.getSighting());
+            } else {
+                pendingAdditions.put(cluster.getKey(), cluster);
+            }
+        }
+
+        scheduleFrame();
+    }
+
+    private void queueAddition(Object key, Object markerSource) {
+        if (pendingRemovals.remove(key) && markers.containsKey(key)) {
+            // The marker never left the map
+            return;
+        }
+
+        pendingAdditions.put(key, markerSource);
+        scheduleFrame();
+    }
+
+    private void queueRemoval(Object key) {
+        pendingRemovals.add(key);
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (!frameScheduled && (!pendingAdditions.isEmpty() || !pendingRemovals.isEmpty())) {
+            frameScheduled = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Applies queued changes until the frame budget is used up, removals first so the markers
+     * that are added next do not go over the limit. At least one change is made on every frame.
+     */
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            frameScheduled = false;
+            long deadlineNanos = System.nanoTime() + FRAME_BUDGET_NANOS;
+
+            Iterator<Object> removals = pendingRemovals.iterator();
+            while (removals.hasNext()) {
+                Marker marker = markers.remove(removals.next());
+                removals.remove();
+                if (marker != null) {
+                    if (marker.equals(countdownMarker)) {
+                        stopCountdown();
+                    }
+                    sightingsByMarker.remove(marker);
+                    marker.remove();
+                }
+
+                if (System.nanoTime() >= deadlineNanos) {
+                    scheduleFrame();
+                    return;
+                }
+            }
+
+            Iterator<Map.Entry<Object, Object>> additions = pendingAdditions.entrySet().iterator();
+            while (additions.hasNext()) {
+                Map.Entry<Object, Object> addition = additions.next();
+                Object key = addition.getKey();
+                Object markerSource = addition.getValue();
+                additions.remove();
+
+                if (markerSource instanceof Sighting) {
+                    // Skip sightings that expired while they were waiting
+                    Sighting sighting = (Sighting) markerSource;
+                    if (sightingStore.contains(sighting)) {
+                        Marker marker = addSightingMarker(sighting);
+                        markers.put(key, marker);
+                        sightingsByMarker.put(marker, sighting);
+                    }
+                } else {
+                    markers.put(key, addClusterMarker((SightingCluster) markerSource));
+                }
+
+                if (System.nanoTime() >= deadlineNanos) {
+                    break;
+                }
+            }
+
+            scheduleFrame();
+        }
+    };
+
+    private Marker addSightingMarker(Sighting sighting) {
+        long startNanos = pipelineMetrics.start();
+        LatLng location = new LatLng(sighting.getLatitude(), sighting.getLongitude());
+
+        // Place the marker on the map, the countdown is only filled in once its info window opens
+        Marker pokemonMarker = googleMap.addMarker(new MarkerOptions()
+                .position(location)
+                .title(sighting.getPokemonName())
+                .icon(iconCache.getIcon(sighting.getPokemonNumber())));
+
+        pipelineMetrics.stop(PipelineMetrics.Stage.ADD_MARKER, startNanos);
+        return pokemonMarker;
+    }
+
+    private Marker addClusterMarker(SightingCluster cluster) {
+        return googleMap.addMarker(new MarkerOptions()
+                .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()))
+                .title(clusterTitle(cluster)));
+    }
+
+    private String clusterTitle(SightingCluster cluster) {
+        return context.getResources().getQuantityString(
+                R.plurals.marker_title_cluster, cluster.size(), cluster.size());
+    }
+
+    /**
+     * Writes the time left into the snippet of the countdown marker
+     *
+     * @return Time until the shown seconds change
+     */
+    private long updateCountdown() {
+        long remainingMs = countdownSighting.getExpirationTimestampMs() - System.currentTimeMillis();
+        countdownMarker.setSnippet(countdownFormatter.format(remainingMs).toString());
+        return remainingMs > 0 ? remainingMs % 1000 + 1 : COUNTDOWN_EXPIRED_TICK_MS;
+    }
+
+    private void stopCountdown() {
+        handler.removeCallbacks(countdownTick);
+        countdownMarker = null;
+        countdownSighting = null;
+    }
+
+    private final Runnable countdownTick = new Runnable() {
+        @Override
+        public void run() {
+            if (!countdownMarker.isInfoWindowShown()) {
+                stopCountdown();
+                return;
+            }
+
+            long delayMs = updateCountdown();
+            // The info window is drawn once, showing it again draws the new snippet
+            countdownMarker.showInfoWindow();
+            handler.postDelayed(this, delayMs);
+        }
+    };
+
+    private void scheduleRefresh() {
+        handler.removeCallbacks(refreshRunnable);
+        handler.postDelayed(refreshRunnable, REFRESH_DELAY_MS);
+    }
+
+    private final Runnable refreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+}
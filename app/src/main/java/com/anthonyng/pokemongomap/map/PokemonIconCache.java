@@ -0,0 +1,35 @@
+package com.anthonyng.pokemongomap.map;
+
+import android.content.Context;
+import android.util.LruCache;
+
+import com.anthonyng.pokemongomap.util.ImageUtil;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+
+/**
+ * Keeps the marker icons of recently seen pokemon so markers of the same species share one icon
+ */
+public class PokemonIconCache {
+
+    private static final int MAX_ICONS = 64;
+
+    private final Context context;
+    private final LruCache<Integer, BitmapDescriptor> icons = new LruCache<>(MAX_ICONS);
+
+    public PokemonIconCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public BitmapDescriptor getIcon(int pokemonNumber) {
+        BitmapDescriptor icon = icons.get(pokemonNumber);
+
+        if (icon == null) {
+            int drawableResourceId = ImageUtil.getPokemonDrawableResourceId(context, pokemonNumber);
+            icon = BitmapDescriptorFactory.fromResource(drawableResourceId);
+            icons.put(pokemonNumber, icon);
+        }
+
+        return icon;
+    }
+}
@@ -5,4 +5,12 @@ package com.anthonyng.pokemongomap.preference;
  */
 public class AppPreferences {
     public static final String PREFERENCE_KEY_SHOW_POKEMON = "pref_show_pokemon_";
+
+    // Camera position when the map was last left, latitude and longitude are stored as raw long bits
+    public static final String PREFERENCE_KEY_LAST_CAMERA_LATITUDE = "pref_last_camera_latitude";
+    public static final String PREFERENCE_KEY_LAST_CAMERA_LONGITUDE = "pref_last_camera_longitude";
+    public static final String PREFERENCE_KEY_LAST_CAMERA_ZOOM = "pref_last_camera_zoom";
+
+    // Whether scan pipeline timings are recorded, shown over the map and exported
+    public static final String PREFERENCE_KEY_DEBUG_METRICS = "pref_debug_metrics";
 }
@@ -0,0 +1,62 @@
+package com.anthonyng.pokemongomap.preference;
+
+import android.content.SharedPreferences;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFilter;
+import com.anthonyng.pokemongomap.util.ImageUtil;
+
+import java.util.BitSet;
+
+/**
+ * The pokemon the user chose to show, kept as a bit per pokemon number. The preferences are
+ * read once and the bits are kept up to date through a preference change listener. Every change
+ * swaps in a new copy of the bits, so the filter can be checked from any thread without locking.
+ */
+public class PokemonFilter implements SightingFilter, SharedPreferences.OnSharedPreferenceChangeListener {
+
+    private volatile BitSet shownPokemon;
+
+    public PokemonFilter(SharedPreferences preferences) {
+        BitSet bits = new BitSet(ImageUtil.MAX_POKEMON_NUMBER + 1);
+        for (int number = 1; number <= ImageUtil.MAX_POKEMON_NUMBER; number++) {
+            bits.set(number, preferences.getBoolean(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON + number, true));
+        }
+        shownPokemon = bits;
+
+        // The preference manager only keeps a weak reference to the listener
+        preferences.registerOnSharedPreferenceChangeListener(this);
+    }
+
+    public boolean isShown(int pokemonNumber) {
+        // Pokemon without a preference are shown by default, and BitSet throws for negative numbers
+        return pokemonNumber < 1 || pokemonNumber > ImageUtil.MAX_POKEMON_NUMBER || shownPokemon.get(pokemonNumber);
+    }
+
+    @Override
+    public boolean accept(Sighting sighting) {
+        return isShown(sighting.getPokemonNumber());
+    }
+
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+        if (key == null || !key.startsWith(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON)) {
+            return;
+        }
+
+        int number;
+        try {
+            number = Integer.parseInt(key.substring(AppPreferences.PREFERENCE_KEY_SHOW_POKEMON.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        if (number < 1 || number > ImageUtil.MAX_POKEMON_NUMBER) {
+            return;
+        }
+
+        BitSet bits = (BitSet) shownPokemon.clone();
+        bits.set(number, preferences.getBoolean(key, true));
+        shownPokemon = bits;
+    }
+}
@@ -0,0 +1,336 @@
+package com.anthonyng.pokemongomap.service;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.location.Location;
+import android.os.BatteryManager;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.support.v4.app.NotificationCompat;
+import android.util.Log;
+
+import com.anthonyng.pokemongomap.PokemonGoMapApplication;
+import com.anthonyng.pokemongomap.R;
+import com.anthonyng.pokemongomap.activity.MapsActivity;
+import com.anthonyng.pokemongomap.scan.AdaptiveScanPlanner;
+import com.anthonyng.pokemongomap.scan.CellResult;
+import com.anthonyng.pokemongomap.scan.CoverageTracker;
+import com.anthonyng.pokemongomap.scan.PokemonScanner;
+import com.anthonyng.pokemongomap.scan.ScanBudget;
+import com.anthonyng.pokemongomap.scan.ScanCell;
+import com.anthonyng.pokemongomap.scan.ScanConfig;
+import com.anthonyng.pokemongomap.scan.SpawnPointTracker;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.api.GoogleApiClient;
+import com.google.android.gms.location.LocationListener;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import rx.Subscriber;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+
+/**
+ * Keeps scanning the area around the user while the app is in the background. The area is
+ * scanned in bursts so the radio can sleep in between, location comes in at the same low rate,
+ * and scanning stays within the request and battery budget of the scan config. A burst only
+ * requests cells with a predicted spawn and cells that were not scanned for a while. Sightings go to
+ * the shared sightings of the application, where the map picks them up.
+ */
+public class ScanService extends Service implements
+        GoogleApiClient.ConnectionCallbacks,
+        GoogleApiClient.OnConnectionFailedListener,
+        LocationListener {
+
+    private static final String TAG = "ScanService";
+
+    public static final String ACTION_START = "com.anthonyng.pokemongomap.action.START_SCAN";
+    public static final String ACTION_STOP = "com.anthonyng.pokemongomap.action.STOP_SCAN";
+
+    private static final int NOTIFICATION_ID = 1;
+
+    private static volatile boolean running = false;
+
+    private PokemonGoMapApplication application;
+    private ScanConfig scanConfig;
+    private PokemonScanner pokemonScanner;
+    private AdaptiveScanPlanner scanPlanner;
+    private SpawnPointTracker spawnPointTracker;
+    private ScanBudget scanBudget;
+    private CoverageTracker coverageTracker;
+    private BatteryManager batteryManager;
+
+    private GoogleApiClient googleApiClient;
+    private LocationRequest locationRequest;
+    private Location lastLocation;
+
+    private Handler handler = new Handler();
+    private Subscription burstSubscription;
+
+    public static void start(Context context) {
+        context.startService(new Intent(context, ScanService.class).setAction(ACTION_START));
+    }
+
+    public static void stop(Context context) {
+        context.startService(new Intent(context, ScanService.class).setAction(ACTION_STOP));
+    }
+
+    /**
+     * @return True while the service is scanning
+     */
+    public static boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        running = true;
+
+        application = (PokemonGoMapApplication) getApplication();
+        scanConfig = application.getScanConfig();
+        pokemonScanner = application.getPokemonScanner();
+        scanPlanner = application.getScanPlanner();
+        spawnPointTracker = application.getSpawnPointTracker();
+        scanBudget = new ScanBudget(scanConfig.getBackgroundRequestsPerHour(),
+                scanConfig.getBackgroundMinBatteryPercent());
+        // Bursts run on a timer rather than on movement, so the move threshold is not used
+        coverageTracker = new CoverageTracker(0, scanConfig.getBackgroundRescanIntervalMs());
+        batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
+        measureCharge();
+
+        startForeground(NOTIFICATION_ID, buildNotification());
+
+        // Location is only needed once per burst, let the fused provider batch it at low power
+        locationRequest = LocationRequest.create();
+        locationRequest.setPriority(LocationRequest.PRIORITY_BALANCED_POWER_ACCURACY);
+        locationRequest.setInterval(scanConfig.getBackgroundBurstIntervalMs());
+        locationRequest.setFastestInterval(scanConfig.getBackgroundBurstIntervalMs() / 2);
+
+        googleApiClient = new GoogleApiClient.Builder(this)
+                .addConnectionCallbacks(this)
+                .addOnConnectionFailedListener(this)
+                .addApi(LocationServices.API)
+                .build();
+        googleApiClient.connect();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        running = false;
+        handler.removeCallbacks(burstRunnable);
+        if (burstSubscription != null) {
+            burstSubscription.unsubscribe();
+        }
+        if (googleApiClient.isConnected()) {
+            LocationServices.FusedLocationApi.removeLocationUpdates(googleApiClient, this);
+        }
+        googleApiClient.disconnect();
+
+        measureCharge();
+        Log.i(TAG, "Background scan stopped (" + scanBudget + ")");
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    //region Google Play Services Methods
+
+    @Override
+    public void onConnected(Bundle bundle) {
+        LocationServices.FusedLocationApi.requestLocationUpdates(googleApiClient, locationRequest, this);
+    }
+
+    @Override
+    public void onConnectionSuspended(int cause) {
+        Log.i(TAG, "Connection suspended");
+        googleApiClient.connect();
+    }
+
+    @Override
+    public void onConnectionFailed(ConnectionResult result) {
+        Log.i(TAG, "Connection failed: ConnectionResult.getErrorCode() = " + result.getErrorCode());
+    }
+
+    @Override
+    public void onLocationChanged(Location location) {
+        boolean firstLocation = lastLocation == null;
+        lastLocation = location;
+
+        if (firstLocation) {
+            handler.post(burstRunnable);
+        }
+    }
+
+    //endregion
+
+    //region Bursts
+
+    private final Runnable burstRunnable = new Runnable() {
+        @Override
+        public void run() {
+            handler.postDelayed(this, scanConfig.getBackgroundBurstIntervalMs());
+            scanBurst();
+        }
+    };
+
+    /**
+     * Scans the cells around the last location that have a predicted spawn, then the ones that
+     * were not scanned recently
+     */
+    private void scanBurst() {
+        if (burstSubscription != null && !burstSubscription.isUnsubscribed()) {
+            // The previous burst is still running, skip this one
+            return;
+        }
+
+        // Nothing else may be removing expired sightings while the map is closed
+        application.getSightingFeed().getStore().removeExpired(System.currentTimeMillis(), null);
+
+        double latitude = lastLocation.getLatitude();
+        double longitude = lastLocation.getLongitude();
+        double radiusMeters = scanConfig.getBackgroundScanRadiusMeters();
+        long nowMs = System.currentTimeMillis();
+
+        // Due cells go first so they survive when the budget cuts the burst short
+        List<ScanCell> plannedCells = new ArrayList<>();
+        HashSet<Long> plannedKeys = new HashSet<>();
+        for (ScanCell cell : spawnPointTracker.dueCells(nowMs, latitude, longitude, radiusMeters)) {
+            if (plannedKeys.add(cell.getKey())) {
+                plannedCells.add(cell);
+            }
+        }
+        List<ScanCell> areaCells = scanPlanner.plan(latitude, longitude, radiusMeters);
+        for (ScanCell cell : coverageTracker.moveTo(latitude, longitude, areaCells, nowMs)) {
+            if (plannedKeys.add(cell.getKey())) {
+                plannedCells.add(cell);
+            }
+        }
+
+        if (plannedCells.isEmpty()) {
+            Log.i(TAG, "Skipping burst, nothing is due (" + scanBudget + ")");
+            return;
+        }
+
+        // Cached cells make no request, so a burst may plan more cells than requests are left
+        int available = scanBudget.available(nowMs, batteryPercent(), isCharging());
+        if (available == 0) {
+            Log.i(TAG, "Skipping burst, out of budget (" + scanBudget + ")");
+            return;
+        }
+
+        int cellCount = Math.min(available, plannedCells.size());
+        final List<ScanCell> cells = new ArrayList<>(plannedCells.subList(0, cellCount));
+        // Scans the map runs at the same time are charged as well, which errs on the side of the battery
+        final long requestsBefore = pokemonScanner.getMetrics().getRequests();
+        burstSubscription = pokemonScanner.scan(cells)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new Subscriber<CellResult>() {
+                    private int fetchedCells;
+                    private int newSightings;
+
+                    @Override
+                    public void onCompleted() {
+                        chargeRequests();
+                        // Cached cells cost no battery, so only fetched ones count towards cells per mAh
+                        scanBudget.onCellsScanned(fetchedCells);
+                        measureCharge();
+                        Log.i(TAG, "Burst of " + cells.size() + " cells (" + fetchedCells + " fetched) found "
+                                + newSightings + " new sightings (" + scanBudget + ")");
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        chargeRequests();
+                        Log.e(TAG, "Burst failed", e);
+                    }
+
+                    @Override
+                    public void onNext(CellResult cellResult) {
+                        if (!cellResult.isFromCache()) {
+                            long nowMs = System.currentTimeMillis();
+                            coverageTracker.markScanned(cellResult.getCell().getKey(), nowMs);
+                            scanPlanner.record(cellResult);
+                            spawnPointTracker.record(cellResult, nowMs);
+                            fetchedCells++;
+                        }
+
+                        for (Sighting sighting : cellResult.getSightings()) {
+                            if (application.publishSighting(sighting)) {
+                                newSightings++;
+                            }
+                        }
+                    }
+
+                    private void chargeRequests() {
+                        long requests = pokemonScanner.getMetrics().getRequests() - requestsBefore;
+                        scanBudget.onRequestsMade((int) requests, System.currentTimeMillis());
+                    }
+                });
+    }
+
+    //endregion
+
+    //region Battery
+
+    private int batteryPercent() {
+        int capacity = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        return capacity > 0 && capacity <= 100 ? capacity : -1;
+    }
+
+    private boolean isCharging() {
+        Intent batteryStatus = registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        return batteryStatus != null && batteryStatus.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+    }
+
+    /**
+     * Reads the charge counter, which not every device supports
+     */
+    private void measureCharge() {
+        int chargeMicroAmpHours = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CHARGE_COUNTER);
+        if (chargeMicroAmpHours > 0) {
+            scanBudget.onChargeMeasured(chargeMicroAmpHours);
+        }
+    }
+
+    //endregion
+
+    private Notification buildNotification() {
+        PendingIntent openIntent = PendingIntent.getActivity(this, 0,
+                new Intent(this, MapsActivity.class), PendingIntent.FLAG_UPDATE_CURRENT);
+        PendingIntent stopIntent = PendingIntent.getService(this, 0,
+                new Intent(this, ScanService.class).setAction(ACTION_STOP), PendingIntent.FLAG_UPDATE_CURRENT);
+
+        return new NotificationCompat.Builder(this)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.notification_title_background_scan))
+                .setContentText(getString(R.string.notification_text_background_scan))
+                .setContentIntent(openIntent)
+                .addAction(0, getString(R.string.notification_action_stop), stopIntent)
+                .setOngoing(true)
+                .build();
+    }
+}
@@ -0,0 +1,23 @@
+package com.anthonyng.pokemongomap.util;
+
+/**
+ * Formats the time left until a sighting expires, such as "12 min, 5 sec". The digits are appended
+ * straight into a buffer that is reused for every call, so formatting allocates nothing until the
+ * text is turned into a String.
+ */
+public class CountdownFormatter {
+
+    private final StringBuilder text = new StringBuilder(16);
+
+    /**
+     * @param remainingMs Time left, anything below zero is shown as no time left
+     * @return The formatted text, which is only valid until the next call
+     */
+    public CharSequence format(long remainingMs) {
+        long totalSeconds = Math.max(remainingMs, 0) / 1000;
+
+        text.setLength(0);
+        text.append(totalSeconds / 60).append(" min, ").append(totalSeconds % 60).append(" sec");
+        return text;
+    }
+}
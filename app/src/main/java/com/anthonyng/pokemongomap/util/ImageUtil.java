@@ -7,12 +7,41 @@ import android.content.Context;
  */
 public class ImageUtil {
 
+    public static final int MAX_POKEMON_NUMBER = 151;
+
+    // Drawable resource ids indexed by pokemon number, looked up once
+    private static volatile int[] pokemonDrawableResourceIds;
+
     public static int getPokemonDrawableResourceId(Context context, int number) {
-        // Get the image associated with the pokemon
-        String resourceName = "p" + number;
-        int drawableResourceId = context.getResources().getIdentifier(
-                resourceName, "drawable", context.getPackageName());
+        if (number < 1 || number > MAX_POKEMON_NUMBER) {
+            return 0;
+        }
+
+        return loadPokemonDrawableResourceIds(context)[number];
+    }
+
+    /**
+     * Looks up the drawable of every pokemon. Called at startup so later lookups are an array access.
+     */
+    public static int[] loadPokemonDrawableResourceIds(Context context) {
+        int[] resourceIds = pokemonDrawableResourceIds;
+        if (resourceIds != null) {
+            return resourceIds;
+        }
+
+        synchronized (ImageUtil.class) {
+            if (pokemonDrawableResourceIds == null) {
+                resourceIds = new int[MAX_POKEMON_NUMBER + 1];
+                for (int number = 1; number <= MAX_POKEMON_NUMBER; number++) {
+                    // Get the image associated with the pokemon
+                    String resourceName = "p" + number;
+                    resourceIds[number] = context.getResources().getIdentifier(
+                            resourceName, "drawable", context.getPackageName());
+                }
+                pokemonDrawableResourceIds = resourceIds;
+            }
 
-        return drawableResourceId;
+            return pokemonDrawableResourceIds;
+        }
     }
 }
@@ -0,0 +1,162 @@
+package com.anthonyng.pokemongomap.util;
+
+/**
+ * Hashed timing wheel for expiring a large number of items from a single periodic tick.
+ * Scheduling and cancelling are constant time and every tick only visits the items that hash
+ * to its slot, so the cost of a tick does not grow with the number of scheduled items.
+ *
+ * The wheel is not thread safe and is meant to be driven from one thread.
+ */
+public class TimingWheel<T> {
+
+    public interface ExpiryListener<T> {
+        void onExpired(T item);
+    }
+
+    /**
+     * Handle to a scheduled item that can be used to cancel it
+     */
+    public static class Timeout<T> {
+
+        private final T item;
+        private long remainingRounds;
+        private int slot = -1;
+        private Timeout<T> previous;
+        private Timeout<T> next;
+
+        private Timeout(T item) {
+            this.item = item;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isScheduled() {
+            return slot != -1;
+        }
+    }
+
+    private final long tickMs;
+    private final long startMs;
+    private final int mask;
+    private final Timeout<T>[] slots;
+
+    // The next tick that has not been processed yet
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMs    Duration of a tick, which is the precision items expire with
+     * @param slotCount Number of slots, rounded up to a power of two
+     * @param startMs   Time of the first tick
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMs, int slotCount, long startMs) {
+        int powerOfTwo = Integer.highestOneBit(Math.max(slotCount - 1, 1)) << 1;
+        this.tickMs = tickMs;
+        this.startMs = startMs;
+        this.mask = powerOfTwo - 1;
+        this.slots = new Timeout[powerOfTwo];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an item to expire at the given time. Items whose deadline has already passed
+     * expire on the next tick.
+     */
+    public Timeout<T> schedule(T item, long deadlineMs) {
+        long deadlineTick = (deadlineMs - startMs + tickMs - 1) / tickMs;
+        long tick = Math.max(deadlineTick, currentTick);
+
+        Timeout<T> timeout = new Timeout<>(item);
+        timeout.remainingRounds = (tick - currentTick) / slots.length;
+        link(timeout, (int) (tick & mask));
+        size++;
+
+        return timeout;
+    }
+
+    /**
+     * Removes an item from the wheel before it expires
+     *
+     * @return True if the item was still scheduled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Processes every tick up to the given time, notifying the listener of each item that expired
+     *
+     * @return Number of items that expired
+     */
+    public int advance(long nowMs, ExpiryListener<T> listener) {
+        long targetTick = (nowMs - startMs) / tickMs;
+        int expiredCount = 0;
+
+        while (currentTick <= targetTick && size > 0) {
+            Timeout<T> timeout = slots[(int) (currentTick & mask)];
+
+            while (timeout != null) {
+                Timeout<T> next = timeout.next;
+
+                if (timeout.remainingRounds <= 0) {
+                    unlink(timeout);
+                    size--;
+                    expiredCount++;
+                    listener.onExpired(timeout.item);
+                } else {
+                    timeout.remainingRounds--;
+                }
+
+                timeout = next;
+            }
+
+            currentTick++;
+        }
+
+        // Nothing left to expire, skip straight to the target
+        if (currentTick <= targetTick) {
+            currentTick = targetTick + 1;
+        }
+
+        return expiredCount;
+    }
+
+    private void link(Timeout<T> timeout, int slot) {
+        Timeout<T> head = slots[slot];
+        timeout.slot = slot;
+        timeout.previous = null;
+        timeout.next = head;
+        if (head != null) {
+            head.previous = timeout;
+        }
+        slots[slot] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            slots[timeout.slot] = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+
+        timeout.slot = -1;
+        timeout.previous = null;
+        timeout.next = null;
+    }
+}
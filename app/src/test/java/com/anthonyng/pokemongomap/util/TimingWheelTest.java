@@ -0,0 +1,115 @@
+package com.anthonyng.pokemongomap.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimingWheelTest {
+
+    private final List<String> expired = new ArrayList<>();
+    private final TimingWheel.ExpiryListener<String> listener = new TimingWheel.ExpiryListener<String>() {
+        @Override
+        public void onExpired(String item) {
+            expired.add(item);
+        }
+    };
+
+    @Test
+    public void advance_expiresItemsOnceTheirDeadlineIsReached() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 500);
+
+        assertEquals(0, wheel.advance(200, listener));
+        assertEquals(1, wheel.advance(300, listener));
+        assertEquals(Arrays.asList("a"), expired);
+        assertEquals(1, wheel.size());
+
+        assertEquals(1, wheel.advance(500, listener));
+        assertEquals(Arrays.asList("a", "b"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void advance_neverExpiresItemsEarly() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("a", 201);
+
+        // The deadline is rounded up to the next tick
+        assertEquals(0, wheel.advance(299, listener));
+        assertEquals(1, wheel.advance(300, listener));
+    }
+
+    @Test
+    public void schedule_pastDeadlineExpiresOnNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.advance(1000, listener);
+        wheel.schedule("late", 200);
+
+        assertEquals(1, wheel.advance(1100, listener));
+        assertEquals(Arrays.asList("late"), expired);
+    }
+
+    @Test
+    public void schedule_deadlinesPastOneTurnWrapAround() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 4, 0);
+        // Same slot as tick 1, but two turns of the wheel later
+        wheel.schedule("near", 100);
+        wheel.schedule("far", 900);
+
+        assertEquals(1, wheel.advance(100, listener));
+        assertEquals(0, wheel.advance(500, listener));
+        assertEquals(0, wheel.advance(800, listener));
+        assertEquals(1, wheel.advance(900, listener));
+        assertEquals(Arrays.asList("near", "far"), expired);
+    }
+
+    @Test
+    public void cancel_removesItemBeforeItExpires() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        TimingWheel.Timeout<String> first = wheel.schedule("first", 300);
+        TimingWheel.Timeout<String> second = wheel.schedule("second", 300);
+        TimingWheel.Timeout<String> third = wheel.schedule("third", 300);
+
+        // Unlink from the middle of a slot
+        assertTrue(wheel.cancel(second));
+        assertFalse(wheel.cancel(second));
+        assertFalse(second.isScheduled());
+        assertEquals(2, wheel.size());
+
+        assertEquals(2, wheel.advance(300, listener));
+        assertTrue(expired.containsAll(Arrays.asList("first", "third")));
+        assertFalse(first.isScheduled());
+        assertFalse(wheel.cancel(third));
+    }
+
+    @Test
+    public void advance_skipsAheadWhenEmpty() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        assertEquals(0, wheel.advance(100000, listener));
+
+        // Deadlines are counted from where the wheel was left, not from where it started
+        wheel.schedule("a", 100100);
+        assertEquals(0, wheel.advance(100050, listener));
+        assertEquals(1, wheel.advance(100100, listener));
+    }
+
+    @Test
+    public void advance_handlesManyItems() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 64, 0);
+        List<TimingWheel.Timeout<String>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            timeouts.add(wheel.schedule(Integer.toString(i), i * 37 % 60000));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            wheel.cancel(timeouts.get(i));
+        }
+
+        assertEquals(5000, wheel.advance(60000, listener));
+        assertEquals(0, wheel.size());
+    }
+}
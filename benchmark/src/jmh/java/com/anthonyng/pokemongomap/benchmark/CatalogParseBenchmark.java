@@ -0,0 +1,102 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import com.anthonyng.pokemongomap.util.FileUtil;
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the number and name of every pokemon from pokemon.json. The streaming side uses Gson's
+ * JsonReader, which android.util.JsonReader in PokemonCatalog is derived from and matches call
+ * for call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogParseBenchmark {
+
+    private byte[] pokemonJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        InputStream inputStream = CatalogParseBenchmark.class.getResourceAsStream("/pokemon.json");
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        inputStream.close();
+        pokemonJson = outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public String inputStreamToString() {
+        return FileUtil.inputStreamToString(new ByteArrayInputStream(pokemonJson));
+    }
+
+    /**
+     * What FilterPokemonFragment used to do: read the whole file into a string and build the
+     * JSON tree
+     */
+    @Benchmark
+    public int legacyJsonArray() throws JSONException {
+        String jsonPokemonString = FileUtil.inputStreamToString(new ByteArrayInputStream(pokemonJson));
+        JSONArray pokemonJsonArray = new JSONArray(jsonPokemonString);
+
+        int checksum = 0;
+        for (int i = 0; i < pokemonJsonArray.length(); i++) {
+            JSONObject pokemonJsonObject = pokemonJsonArray.getJSONObject(i);
+            checksum += Integer.parseInt(pokemonJsonObject.getString("Number"));
+            checksum += pokemonJsonObject.getString("Name").length();
+        }
+        return checksum;
+    }
+
+    /**
+     * What PokemonCatalog does: stream the file and skip every field but the number and name
+     */
+    @Benchmark
+    public int streamingJsonReader() throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(pokemonJson), "UTF-8"));
+
+        int checksum = 0;
+        try {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    if (field.equals("Number")) {
+                        checksum += Integer.parseInt(reader.nextString());
+                    } else if (field.equals("Name")) {
+                        checksum += reader.nextString().length();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        } finally {
+            reader.close();
+        }
+        return checksum;
+    }
+}
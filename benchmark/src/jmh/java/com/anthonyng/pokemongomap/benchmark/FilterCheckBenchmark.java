@@ -0,0 +1,85 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deciding whether a sighting passes the species filter, run for every sighting of every cell.
+ * SharedPreferences and PokemonFilter are Android classes, so both sides are reproduced here: a
+ * synchronized map keyed by a concatenated string as SharedPreferences.getBoolean does, and the
+ * bitset PokemonFilter keeps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FilterCheckBenchmark {
+
+    private static final String PREFERENCE_KEY_SHOW_POKEMON = "pref_show_pokemon_";
+    private static final int MAX_POKEMON_NUMBER = 151;
+    private static final int BATCH = 1000;
+
+    private final Map<String, Object> preferences = new HashMap<>();
+    private volatile BitSet shownPokemon;
+    private int[] pokemonNumbers;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        BitSet shown = new BitSet(MAX_POKEMON_NUMBER + 1);
+        for (int number = 1; number <= MAX_POKEMON_NUMBER; number++) {
+            boolean show = random.nextInt(4) != 0;
+            preferences.put(PREFERENCE_KEY_SHOW_POKEMON + number, show);
+            shown.set(number, show);
+        }
+        shownPokemon = shown;
+
+        pokemonNumbers = new int[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            pokemonNumbers[i] = 1 + random.nextInt(MAX_POKEMON_NUMBER);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int legacyPreferenceLookup() {
+        int shown = 0;
+        for (int number : pokemonNumbers) {
+            if (getBoolean(PREFERENCE_KEY_SHOW_POKEMON + number, true)) {
+                shown++;
+            }
+        }
+        return shown;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int bitSetLookup() {
+        BitSet shown = shownPokemon;
+        int count = 0;
+        for (int number : pokemonNumbers) {
+            if (shown.get(number)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean getBoolean(String key, boolean defaultValue) {
+        synchronized (preferences) {
+            Boolean value = (Boolean) preferences.get(key);
+            return value != null ? value : defaultValue;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.geo.HexLattice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the grid of cells to scan, run once per scan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HexGridBenchmark {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+
+    @Param({"1", "5", "12", "30"})
+    public int rings;
+
+    private LegacyHexScanMap.LatLng center;
+    private HexLattice lattice;
+    private long[] keys;
+    private double[] latitudes;
+    private double[] longitudes;
+
+    @Setup
+    public void setUp() {
+        center = new LegacyHexScanMap.LatLng(LATITUDE, LONGITUDE);
+        lattice = new HexLattice(HexGrid.DEFAULT_SPACING_METERS, 0);
+        keys = new long[HexGrid.cellCount(rings)];
+        latitudes = new double[HexGrid.cellCount(rings)];
+        longitudes = new double[HexGrid.cellCount(rings)];
+    }
+
+    @Benchmark
+    public List<LegacyHexScanMap.LatLng> legacyMakeHexScanMap() {
+        return LegacyHexScanMap.makeHexScanMap(center, rings, 1, new ArrayList<LegacyHexScanMap.LatLng>());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public LegacyHexScanMap.LatLng legacyTranslate() {
+        return LegacyHexScanMap.translate(center, 120.0, HexGrid.DEFAULT_SPACING_METERS);
+    }
+
+    @Benchmark
+    public HexGrid hexGridAround() {
+        return HexGrid.around(LATITUDE, LONGITUDE, rings, HexGrid.DEFAULT_SPACING_METERS);
+    }
+
+    @Benchmark
+    public int hexGridFill() {
+        return HexGrid.fill(LATITUDE, LONGITUDE, rings, HexGrid.DEFAULT_SPACING_METERS, latitudes, longitudes, 0);
+    }
+
+    @Benchmark
+    public int latticeCellsAround() {
+        return lattice.cellsAround(LATITUDE, LONGITUDE, rings, keys, 0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import java.util.List;
+
+/**
+ * The scan grid as MapsActivity built it before HexGrid, kept as the baseline to compare against.
+ * Every cell is translated from the previous one with a great circle formula.
+ */
+class LegacyHexScanMap {
+
+    private LegacyHexScanMap() {
+    }
+
+    static final class LatLng {
+
+        final double latitude;
+        final double longitude;
+
+        LatLng(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+
+    static List<LatLng> makeHexScanMap(LatLng loc, int steps, int layer_count, List<LatLng> scanMap) {
+        // Base case is do nothing
+        if (steps > 0) {
+            if (layer_count == 1) {
+                // Add in the point, no translation since 1st layer
+                scanMap.add(loc);
+            } else {
+                double distance = 200; // in meters
+                // add a point that is distance due north
+                scanMap.add(translate(loc, 0.0, distance));
+                // go south-east
+                for (int i = 0; i < layer_count - 1; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 120.0, distance);
+                    scanMap.add(next);
+                }
+                // go due south
+                for (int i = 0; i < layer_count - 1; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 180.0, distance);
+                    scanMap.add(next);
+                }
+                // go south-west
+                for (int i = 0; i < layer_count - 1; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 240.0, distance);
+                    scanMap.add(next);
+                }
+                // go north-west
+                for (int i = 0; i < layer_count - 1; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 300.0, distance);
+                    scanMap.add(next);
+                }
+                // go due north
+                for (int i = 0; i < layer_count - 1; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 0.0, distance);
+                    scanMap.add(next);
+                }
+                // go north-east
+                for (int i = 0; i < layer_count - 2; i++) {
+                    LatLng prev = scanMap.get(scanMap.size() - 1);
+                    LatLng next = translate(prev, 60.0, distance);
+                    scanMap.add(next);
+                }
+            }
+            return makeHexScanMap(scanMap.get(hexagonal_number(layer_count - 1)), steps - 1, layer_count + 1, scanMap);
+        } else {
+            return scanMap;
+        }
+    }
+
+    static LatLng translate(LatLng cur, double bearing, double distance) {
+        double earth = 6378.1; // Radius of Earth in km
+        double rad_bear = Math.toRadians(bearing);
+        double dist_km = distance / 1000;
+        double lat1 = Math.toRadians(cur.latitude);
+        double lon1 = Math.toRadians(cur.longitude);
+        double lat2 = Math.asin(Math.sin(lat1) * Math.cos(dist_km / earth) +
+                Math.cos(lat1) * Math.sin(dist_km / earth) * Math.cos(rad_bear));
+        double lon2 = lon1 + Math.atan2(Math.sin(rad_bear) * Math.sin(dist_km / earth) * Math.cos(lat1),
+                Math.cos(dist_km / earth) - Math.sin(lat1) * Math.sin(lat2));
+        lat2 = Math.toDegrees(lat2);
+        lon2 = Math.toDegrees(lon2);
+        return new LatLng(lat2, lon2);
+    }
+
+    static int hexagonal_number(int n) {
+        return (n == 0) ? 0 : 3 * n * (n - 1) + 1;
+    }
+}
@@ -0,0 +1,74 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dropping sightings that are already on the map, run for every sighting of every cell. Half of
+ * the sightings are repeats, as when overlapping cells report the same spawn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SightingDedupBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int sightingCount;
+
+    private Sighting[] sightings;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        long expirationMs = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(15);
+
+        sightings = new Sighting[sightingCount];
+        for (int i = 0; i < sightingCount; i++) {
+            int spawn = random.nextInt(sightingCount / 2 + 1);
+            sightings[i] = new Sighting(Long.toHexString(0x4d4b0000000L + spawn), spawn,
+                    1 + spawn % 151, "Pokemon",
+                    43.6 + (spawn % 100) * 0.001, -79.4 + (spawn / 100) * 0.001, expirationMs);
+        }
+    }
+
+    /**
+     * The pokemonSet of spawn point ids MapsActivity used to keep
+     */
+    @Benchmark
+    public int legacyPokemonSet() {
+        HashSet<String> pokemonSet = new HashSet<>();
+        int added = 0;
+        for (Sighting sighting : sightings) {
+            if (!pokemonSet.contains(sighting.getSpawnPointId())) {
+                pokemonSet.add(sighting.getSpawnPointId());
+                added++;
+            }
+        }
+        return added;
+    }
+
+    @Benchmark
+    public int sightingStore() {
+        SightingStore sightingStore = new SightingStore();
+        int added = 0;
+        for (Sighting sighting : sightings) {
+            if (sightingStore.add(sighting)) {
+                added++;
+            }
+        }
+        return added;
+    }
+}
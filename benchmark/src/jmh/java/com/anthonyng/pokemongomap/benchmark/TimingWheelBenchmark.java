@@ -0,0 +1,100 @@
+package com.anthonyng.pokemongomap.benchmark;
+
+import com.anthonyng.pokemongomap.util.TimingWheel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expiring the markers of 10k sightings with the wheel MapsActivity uses, with the same tick and
+ * slot count. Deadlines are spread over the 15 minutes a pokemon stays around. Every case is
+ * reported per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimingWheelBenchmark {
+
+    private static final long TICK_MS = 1000;
+    private static final int SLOTS = 1024;
+    private static final int ITEMS = 10000;
+    private static final long LIFETIME_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final TimingWheel.ExpiryListener<Integer> expiryListener = new TimingWheel.ExpiryListener<Integer>() {
+        @Override
+        public void onExpired(Integer item) {
+            expired++;
+        }
+    };
+
+    private Integer[] items;
+    private long[] deadlinesMs;
+    private TimingWheel.Timeout<Integer>[] timeouts;
+    private int expired;
+
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        Random random = new Random(42);
+        items = new Integer[ITEMS];
+        deadlinesMs = new long[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            items[i] = i;
+            deadlinesMs[i] = 1 + (long) (random.nextDouble() * LIFETIME_MS);
+        }
+        timeouts = new TimingWheel.Timeout[ITEMS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int schedule() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK_MS, SLOTS, 0);
+        for (int i = 0; i < ITEMS; i++) {
+            wheel.schedule(items[i], deadlinesMs[i]);
+        }
+        return wheel.size();
+    }
+
+    /**
+     * Markers that are removed before their pokemon expires, such as when the filter changes
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int scheduleAndCancel() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK_MS, SLOTS, 0);
+        for (int i = 0; i < ITEMS; i++) {
+            timeouts[i] = wheel.schedule(items[i], deadlinesMs[i]);
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            wheel.cancel(timeouts[i]);
+        }
+        return wheel.size();
+    }
+
+    /**
+     * Schedules every item, then ticks once a second until all of them expired
+     */
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int scheduleAndTick() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK_MS, SLOTS, 0);
+        for (int i = 0; i < ITEMS; i++) {
+            wheel.schedule(items[i], deadlinesMs[i]);
+        }
+
+        expired = 0;
+        for (long nowMs = TICK_MS; wheel.size() > 0; nowMs += TICK_MS) {
+            wheel.advance(nowMs, expiryListener);
+        }
+        return expired;
+    }
+}
@@ -0,0 +1,173 @@
+package com.anthonyng.pokemongomap.loadtest;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Local stand-in for the login and map object servers. Responses are synthetic, come after a
+ * configurable latency and fail at a configurable rate, and the pokemon around a location are
+ * derived from the location so overlapping requests see the same spawns.
+ *
+ * <ul>
+ * <li>POST /login answers with a session token</li>
+ * <li>GET /map?lat=..&amp;lng=..&amp;token=.. answers with one pokemon per line, as
+ * spawnPointId,encounterId,pokemonNumber,latitude,longitude,expirationTimestampMs</li>
+ * </ul>
+ * Failed map requests are answered with 503, which clients should treat like the real server
+ * pushing back. Logins always succeed.
+ */
+public class FakeMapServer {
+
+    // Spawns are placed on a grid of this size, roughly 110 m
+    private static final double SPAWN_GRID_DEGREES = 0.001;
+    private static final int MAX_POKEMON_NUMBER = 151;
+    private static final long SPAWN_DURATION_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final MockWebServer server = new MockWebServer();
+    private final Random random = new Random();
+    private final AtomicInteger nextToken = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private long latencyMs = 50;
+    private long latencyJitterMs = 20;
+    private double errorRate = 0;
+    private double spawnsPerCell = 2;
+
+    /**
+     * @param latencyMs       Minimum time before a response is sent
+     * @param latencyJitterMs Up to this much is added to the latency at random
+     */
+    public FakeMapServer setLatency(long latencyMs, long latencyJitterMs) {
+        if (latencyMs < 0 || latencyJitterMs < 0) {
+            throw new IllegalArgumentException("latencyMs and latencyJitterMs must not be negative");
+        }
+
+        this.latencyMs = latencyMs;
+        this.latencyJitterMs = latencyJitterMs;
+        return this;
+    }
+
+    /**
+     * @param errorRate Fraction of requests that fail with 503
+     */
+    public FakeMapServer setErrorRate(double errorRate) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("errorRate must be between 0 and 1");
+        }
+
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param spawnsPerCell Average number of pokemon answered for a location
+     */
+    public FakeMapServer setSpawnsPerCell(double spawnsPerCell) {
+        if (spawnsPerCell < 0) {
+            throw new IllegalArgumentException("spawnsPerCell must not be negative");
+        }
+
+        this.spawnsPerCell = spawnsPerCell;
+        return this;
+    }
+
+    public FakeMapServer start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start();
+        return this;
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    public HttpUrl getUrl() {
+        return server.url("/");
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        requests.incrementAndGet();
+        MockResponse response = new MockResponse()
+                .setBodyDelay(latencyMs + (latencyJitterMs > 0 ? nextLong(latencyJitterMs + 1) : 0),
+                        TimeUnit.MILLISECONDS);
+
+        HttpUrl url = server.url(request.getPath());
+        if ("/login".equals(url.encodedPath()) && "POST".equals(request.getMethod())) {
+            return response.setBody("token-" + nextToken.incrementAndGet());
+        }
+
+        if ("/map".equals(url.encodedPath())) {
+            if (errorRate > 0 && random.nextDouble() < errorRate) {
+                failures.incrementAndGet();
+                return response.setResponseCode(503);
+            }
+
+            String token = url.queryParameter("token");
+            String latitude = url.queryParameter("lat");
+            String longitude = url.queryParameter("lng");
+            if (token == null || !token.startsWith("token-")) {
+                return response.setResponseCode(401);
+            }
+            if (latitude == null || longitude == null) {
+                return response.setResponseCode(400);
+            }
+
+            return response.setBody(mapObjects(Double.parseDouble(latitude), Double.parseDouble(longitude)));
+        }
+
+        return response.setResponseCode(404);
+    }
+
+    /**
+     * Pokemon within the spawn grid square of the location, the same for every request made
+     * during one spawn period
+     */
+    private String mapObjects(double latitude, double longitude) {
+        long row = (long) Math.floor(latitude / SPAWN_GRID_DEGREES);
+        long column = (long) Math.floor(longitude / SPAWN_GRID_DEGREES);
+        long nowMs = System.currentTimeMillis();
+        long period = nowMs / SPAWN_DURATION_MS;
+
+        long seed = (row * 31 + column) * 31 + period;
+        Random spawnRandom = new Random(seed);
+        int count = spawnRandom.nextInt((int) Math.round(spawnsPerCell * 2) + 1);
+
+        StringBuilder body = new StringBuilder(count * 64);
+        for (int i = 0; i < count; i++) {
+            body.append(Long.toHexString(row * 31 + column)).append('-').append(i).append(',')
+                    .append(seed * 31 + i).append(',')
+                    .append(1 + spawnRandom.nextInt(MAX_POKEMON_NUMBER)).append(',')
+                    .append((row + spawnRandom.nextDouble()) * SPAWN_GRID_DEGREES).append(',')
+                    .append((column + spawnRandom.nextDouble()) * SPAWN_GRID_DEGREES).append(',')
+                    .append((period + 1) * SPAWN_DURATION_MS).append('\n');
+        }
+        return body.toString();
+    }
+
+    private long nextLong(long bound) {
+        return (long) (random.nextDouble() * bound);
+    }
+}
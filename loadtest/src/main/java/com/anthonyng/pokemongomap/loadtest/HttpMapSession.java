@@ -0,0 +1,89 @@
+package com.anthonyng.pokemongomap.loadtest;
+
+import com.anthonyng.pokemongomap.scan.MapSession;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Session with a {@link FakeMapServer}. A 503 from the server is reported as a
+ * {@link RemoteServerException} so the scanner backs off the same way it does for the real server.
+ */
+public class HttpMapSession implements MapSession {
+
+    private final OkHttpClient okHttpClient;
+    private final HttpUrl baseUrl;
+    private final String token;
+    private final long loginTimeMs;
+
+    public HttpMapSession(OkHttpClient okHttpClient, HttpUrl baseUrl, String token, long loginTimeMs) {
+        this.okHttpClient = okHttpClient;
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.loginTimeMs = loginTimeMs;
+    }
+
+    @Override
+    public List<Sighting> getCatchablePokemon(double latitude, double longitude)
+            throws IOException, RemoteServerException {
+        HttpUrl url = baseUrl.newBuilder()
+                .encodedPath("/map")
+                .addQueryParameter("lat", Double.toString(latitude))
+                .addQueryParameter("lng", Double.toString(longitude))
+                .addQueryParameter("token", token)
+                .build();
+
+        Response response = okHttpClient.newCall(new Request.Builder().url(url).build()).execute();
+        String body = response.body().string();
+
+        if (response.code() == 503) {
+            throw new RemoteServerException("Server unavailable");
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Unexpected response " + response.code());
+        }
+
+        return parse(body);
+    }
+
+    @Override
+    public long getAgeMs(long nowMs) {
+        return nowMs - loginTimeMs;
+    }
+
+    private static List<Sighting> parse(String body) {
+        List<Sighting> sightings = new ArrayList<>();
+
+        int lineStart = 0;
+        while (lineStart < body.length()) {
+            int lineEnd = body.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = body.length();
+            }
+
+            String[] fields = body.substring(lineStart, lineEnd).split(",");
+            if (fields.length == 6) {
+                int pokemonNumber = Integer.parseInt(fields[2]);
+                sightings.add(new Sighting(fields[0],
+                        Long.parseLong(fields[1]),
+                        pokemonNumber,
+                        "#" + pokemonNumber,
+                        Double.parseDouble(fields[3]),
+                        Double.parseDouble(fields[4]),
+                        Long.parseLong(fields[5])));
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return sightings;
+    }
+}
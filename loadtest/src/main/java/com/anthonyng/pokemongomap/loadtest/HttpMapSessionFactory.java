@@ -0,0 +1,49 @@
+package com.anthonyng.pokemongomap.loadtest;
+
+import com.anthonyng.pokemongomap.scan.MapSession;
+import com.anthonyng.pokemongomap.scan.MapSessionFactory;
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Logs in to a {@link FakeMapServer}
+ */
+public class HttpMapSessionFactory implements MapSessionFactory {
+
+    private static final MediaType TEXT = MediaType.parse("text/plain");
+
+    private final OkHttpClient okHttpClient;
+    private final HttpUrl baseUrl;
+
+    public HttpMapSessionFactory(OkHttpClient okHttpClient, HttpUrl baseUrl) {
+        this.okHttpClient = okHttpClient;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public MapSession login() throws IOException, RemoteServerException {
+        Request request = new Request.Builder()
+                .url(baseUrl.newBuilder().encodedPath("/login").build())
+                .post(RequestBody.create(TEXT, "benchmark"))
+                .build();
+
+        Response response = okHttpClient.newCall(request).execute();
+        String token = response.body().string();
+        if (response.code() == 503) {
+            throw new RemoteServerException("Login server unavailable");
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("Login failed with " + response.code());
+        }
+
+        return new HttpMapSession(okHttpClient, baseUrl, token, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,177 @@
+package com.anthonyng.pokemongomap.loadtest;
+
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.geo.HexLattice;
+import com.anthonyng.pokemongomap.metrics.Histogram;
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.scan.CellResult;
+import com.anthonyng.pokemongomap.scan.PokemonScanner;
+import com.anthonyng.pokemongomap.scan.ScanAccount;
+import com.anthonyng.pokemongomap.scan.ScanCell;
+import com.anthonyng.pokemongomap.scan.ScanConfig;
+import com.anthonyng.pokemongomap.scan.ScanTimings;
+import com.anthonyng.pokemongomap.scan.SessionPool;
+import com.anthonyng.pokemongomap.sighting.SightingFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import okhttp3.OkHttpClient;
+import rx.functions.Action1;
+
+/**
+ * Drives the scan engine end to end against a {@link FakeMapServer} on this machine and reports
+ * throughput and latency for a range of grid sizes. Needs no network access.
+ *
+ * <pre>
+ * ./gradlew :loadtest:run -Pargs="--rings 1,5,10,20,30 --parallelism 8 --latency 50 --error-rate 0.01"
+ * ./gradlew :loadtest:run -Pargs="--rings 20 --accounts 4 --account-rate 5"
+ * </pre>
+ */
+public class ScanThroughputBenchmark {
+
+    private static final double CENTER_LATITUDE = 43.6532;
+    private static final double CENTER_LONGITUDE = -79.3832;
+
+    public static void main(String[] args) throws Exception {
+        int[] ringCounts = {1, 2, 5, 10, 20, 30};
+        int parallelism = ScanConfig.DEFAULT_PARALLELISM;
+        long latencyMs = 50;
+        long latencyJitterMs = 20;
+        double errorRate = 0.01;
+        double spawnsPerCell = 2;
+        double requestsPerSecond = 1000;
+        int accountCount = 1;
+        double accountRequestsPerSecond = 1000;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--rings":
+                    String[] parts = value.split(",");
+                    ringCounts = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        ringCounts[j] = Integer.parseInt(parts[j].trim());
+                    }
+                    break;
+                case "--parallelism":
+                    parallelism = Integer.parseInt(value);
+                    break;
+                case "--latency":
+                    latencyMs = Long.parseLong(value);
+                    break;
+                case "--jitter":
+                    latencyJitterMs = Long.parseLong(value);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(value);
+                    break;
+                case "--spawns":
+                    spawnsPerCell = Double.parseDouble(value);
+                    break;
+                case "--rate":
+                    requestsPerSecond = Double.parseDouble(value);
+                    break;
+                case "--accounts":
+                    accountCount = Integer.parseInt(value);
+                    break;
+                case "--account-rate":
+                    accountRequestsPerSecond = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        FakeMapServer server = new FakeMapServer()
+                .setLatency(latencyMs, latencyJitterMs)
+                .setErrorRate(errorRate)
+                .setSpawnsPerCell(spawnsPerCell)
+                .start();
+
+        System.out.println(String.format(Locale.US,
+                "parallelism=%d latency=%d+%dms errorRate=%.3f spawnsPerCell=%.1f rate=%.0f/s"
+                        + " accounts=%d accountRate=%.0f/s",
+                parallelism, latencyMs, latencyJitterMs, errorRate, spawnsPerCell, requestsPerSecond,
+                accountCount, accountRequestsPerSecond));
+        System.out.println(String.format(Locale.US, "%6s %6s %10s %10s %10s %8s %8s %8s %9s",
+                "rings", "cells", "total ms", "first ms", "cells/s", "cell p50", "cell p99", "retries", "sightings"));
+
+        try {
+            OkHttpClient okHttpClient = new OkHttpClient();
+            for (int rings : ringCounts) {
+                run(server, okHttpClient, rings, parallelism, requestsPerSecond, accountCount,
+                        accountRequestsPerSecond);
+            }
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static void run(FakeMapServer server, OkHttpClient okHttpClient, int rings, int parallelism,
+                            double requestsPerSecond, int accountCount, double accountRequestsPerSecond)
+            throws Exception {
+        List<ScanCell> cells = ScanCell.around(new HexLattice(HexGrid.DEFAULT_SPACING_METERS, 0),
+                CENTER_LATITUDE, CENTER_LONGITUDE, rings);
+
+        ScanConfig config = ScanConfig.create()
+                .setParallelism(parallelism)
+                .setMaxCellsPerScan(cells.size())
+                .setRequestRate(requestsPerSecond, parallelism)
+                .setSessionRequestRate(requestsPerSecond, parallelism)
+                .setAccountRequestRate(accountRequestsPerSecond, parallelism)
+                .setBackoff(10, 500);
+
+        List<SessionPool> sessionPools = new ArrayList<>();
+        List<ScanAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < accountCount; i++) {
+            SessionPool sessionPool = new SessionPool(
+                    new HttpMapSessionFactory(okHttpClient, server.getUrl()), parallelism);
+            sessionPools.add(sessionPool);
+            accounts.add(new ScanAccount("account" + i, sessionPool));
+        }
+        // Every run gets its own metrics so the percentiles only cover the cells of that run
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        pipelineMetrics.setEnabled(true);
+        PokemonScanner scanner = new PokemonScanner(accounts, config, SightingFilter.ACCEPT_ALL, pipelineMetrics);
+
+        try {
+            // Log in up front so the run measures scanning only
+            for (SessionPool sessionPool : sessionPools) {
+                sessionPool.warmUp();
+                while (sessionPool.getIdleCount() < parallelism) {
+                    Thread.sleep(10);
+                }
+            }
+
+            final ScanTimings timings = new ScanTimings();
+            final int[] sightings = new int[1];
+            scanner.scan(cells)
+                    .doOnNext(new Action1<CellResult>() {
+                        @Override
+                        public void call(CellResult cellResult) {
+                            timings.markResult();
+                            sightings[0] += cellResult.getAllSightings().size();
+                        }
+                    })
+                    .toBlocking()
+                    .lastOrDefault(null);
+            timings.markCompleted();
+
+            long totalMs = timings.getTotalTimeMs();
+            // Latency of a whole cell as the user sees it, not of the single request that answered it
+            Histogram cellLatency = pipelineMetrics.getHistogram(PipelineMetrics.Stage.CELL);
+            System.out.println(String.format(Locale.US, "%6d %6d %10d %10d %10.1f %8d %8d %8d %9d",
+                    rings, cells.size(), totalMs, timings.getTimeToFirstResultMs(),
+                    cells.size() * 1000.0 / Math.max(totalMs, 1),
+                    cellLatency.percentileMicros(50) / 1000, cellLatency.percentileMicros(99) / 1000,
+                    scanner.getRequestGovernor().getRetries(), sightings[0]));
+        } finally {
+            scanner.shutdown();
+            for (SessionPool sessionPool : sessionPools) {
+                sessionPool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.anthonyng.pokemongomap.cli;
+
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.geo.HexLattice;
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.scan.CellResult;
+import com.anthonyng.pokemongomap.scan.PokemonScanner;
+import com.anthonyng.pokemongomap.scan.PtcSessionFactory;
+import com.anthonyng.pokemongomap.scan.ScanAccount;
+import com.anthonyng.pokemongomap.scan.ScanCell;
+import com.anthonyng.pokemongomap.scan.ScanConfig;
+import com.anthonyng.pokemongomap.scan.SessionPool;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFilter;
+import com.anthonyng.pokemongomap.sighting.SightingStore;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import rx.functions.Action1;
+
+/**
+ * Scans the area around a location once from the command line and writes every sighting to
+ * standard output as a line of JSON. Progress and a summary go to standard error, so the output
+ * can be piped straight into other tools.
+ *
+ * <pre>
+ * ./gradlew :scanner:run -Pargs="--center 43.6532,-79.3832 --rings 20 --accounts accounts.txt"
+ * </pre>
+ *
+ * The accounts file lists one Pokemon Trainer Club account per line as username:password. Lines
+ * that are blank or start with # are skipped.
+ */
+public class ScanRunner {
+
+    private static final int DEFAULT_RINGS = 5;
+    private static final int DEFAULT_PARALLELISM = 8;
+
+    public static void main(String[] args) throws Exception {
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        int rings = DEFAULT_RINGS;
+        File accountsFile = null;
+        int parallelism = DEFAULT_PARALLELISM;
+        double spacingMeters = HexGrid.DEFAULT_SPACING_METERS;
+        double accountRequestsPerSecond = ScanConfig.DEFAULT_ACCOUNT_REQUESTS_PER_SECOND;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--center":
+                    String[] parts = value.split(",");
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("--center must be latitude,longitude");
+                    }
+                    latitude = Double.parseDouble(parts[0].trim());
+                    longitude = Double.parseDouble(parts[1].trim());
+                    break;
+                case "--rings":
+                    rings = Integer.parseInt(value);
+                    break;
+                case "--accounts":
+                    accountsFile = new File(value);
+                    break;
+                case "--parallelism":
+                    parallelism = Integer.parseInt(value);
+                    break;
+                case "--spacing":
+                    spacingMeters = Double.parseDouble(value);
+                    break;
+                case "--account-rate":
+                    accountRequestsPerSecond = Double.parseDouble(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (Double.isNaN(latitude) || accountsFile == null) {
+            System.err.println("Usage: ScanRunner --center <latitude,longitude> --accounts <file> [--rings <n>]"
+                    + " [--parallelism <sessions per account>] [--spacing <meters>] [--account-rate <requests/s>]");
+            System.exit(2);
+        }
+
+        List<String[]> credentials = readAccounts(accountsFile);
+        if (credentials.isEmpty()) {
+            throw new IllegalArgumentException("No accounts in " + accountsFile);
+        }
+
+        List<ScanCell> cells = ScanCell.around(new HexLattice(spacingMeters, 0), latitude, longitude, rings);
+
+        // There is no phone to spare here, so the only ceilings are the ones of each account
+        ScanConfig config = ScanConfig.create()
+                .setParallelism(parallelism)
+                .setMaxCellsPerScan(cells.size())
+                .setCacheMaxCells(Math.max(cells.size(), ScanConfig.DEFAULT_CACHE_MAX_CELLS))
+                .setSessionRequestRate(accountRequestsPerSecond, parallelism)
+                .setAccountRequestRate(accountRequestsPerSecond, parallelism)
+                .setRequestRate(accountRequestsPerSecond * credentials.size(), parallelism * credentials.size());
+
+        List<SessionPool> sessionPools = new ArrayList<>();
+        List<ScanAccount> accounts = new ArrayList<>();
+        for (String[] credential : credentials) {
+            SessionPool sessionPool = new SessionPool(new PtcSessionFactory(credential[0], credential[1]),
+                    parallelism);
+            sessionPool.warmUp();
+            sessionPools.add(sessionPool);
+            accounts.add(new ScanAccount(credential[0], sessionPool));
+        }
+
+        PipelineMetrics pipelineMetrics = new PipelineMetrics();
+        pipelineMetrics.setEnabled(true);
+        PokemonScanner scanner = new PokemonScanner(accounts, config, SightingFilter.ACCEPT_ALL, pipelineMetrics);
+
+        System.err.println(String.format(Locale.US, "Scanning %d cells around %.6f,%.6f with %d accounts",
+                cells.size(), latitude, longitude, accounts.size()));
+
+        final PrintStream out = new PrintStream(System.out, false, "UTF-8");
+        // Neighbouring cells overlap, so the same pokemon is often seen more than once
+        final SightingStore sightings = new SightingStore();
+        long startMs = System.currentTimeMillis();
+        int exitCode = 0;
+
+        try {
+            scanner.scan(cells)
+                    .toBlocking()
+                    .forEach(new Action1<CellResult>() {
+                        @Override
+                        public void call(CellResult cellResult) {
+                            for (Sighting sighting : cellResult.getAllSightings()) {
+                                if (sightings.add(sighting)) {
+                                    out.println(toJson(sighting));
+                                }
+                            }
+                            out.flush();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            System.err.println("Scan failed: " + e.getMessage());
+            exitCode = 1;
+        } finally {
+            out.flush();
+            scanner.shutdown();
+            for (SessionPool sessionPool : sessionPools) {
+                sessionPool.shutdown();
+            }
+        }
+
+        System.err.println(String.format(Locale.US, "%d sightings in %d ms (%s, %s)",
+                sightings.size(), System.currentTimeMillis() - startMs, scanner.getMetrics(),
+                scanner.getRequestGovernor()));
+        System.err.println(pipelineMetrics.toSummary());
+        System.exit(exitCode);
+    }
+
+    private static List<String[]> readAccounts(File file) throws IOException {
+        List<String[]> accounts = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                int separator = line.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected username:password in " + file);
+                }
+                accounts.add(new String[]{line.substring(0, separator), line.substring(separator + 1)});
+            }
+        } finally {
+            reader.close();
+        }
+        return accounts;
+    }
+
+    private static String toJson(Sighting sighting) {
+        StringBuilder json = new StringBuilder(192);
+        json.append("{\"spawnPointId\":");
+        appendString(json, sighting.getSpawnPointId());
+        json.append(",\"encounterId\":").append(sighting.getEncounterId());
+        json.append(",\"pokemonNumber\":").append(sighting.getPokemonNumber());
+        json.append(",\"pokemonName\":");
+        appendString(json, sighting.getPokemonName());
+        json.append(",\"latitude\":").append(sighting.getLatitude());
+        json.append(",\"longitude\":").append(sighting.getLongitude());
+        json.append(",\"expirationTimestampMs\":").append(sighting.getExpirationTimestampMs());
+        json.append(",\"expirationKnown\":").append(sighting.isExpirationKnown());
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
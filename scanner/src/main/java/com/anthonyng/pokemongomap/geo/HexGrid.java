@@ -0,0 +1,223 @@
+package com.anthonyng.pokemongomap.geo;
+
+/**
+ * Generates the centers of a hexagonal grid of cells, ordered ring by ring outwards from the
+ * middle. Cells are addressed with axial coordinates (q, r) where q points 60 degrees east of
+ * north and r points due north.
+ *
+ * The offsets of every cell are computed once in units of the cell spacing and shared by all
+ * grids, so generating a grid only costs a multiply-add per cell and a single cosine.
+ */
+public class HexGrid {
+
+    public static final double DEFAULT_SPACING_METERS = 200;
+
+    static final double EARTH_RADIUS_METERS = 6378100;
+    static final double METERS_PER_DEGREE = Math.toRadians(1) * EARTH_RADIUS_METERS;
+    static final double SQRT_3_OVER_2 = Math.sqrt(3) / 2;
+
+    // Walking order around a ring, starting from the north-most cell
+    private static final int[] DIRECTION_Q = {1, 0, -1, -1, 0, 1};
+    private static final int[] DIRECTION_R = {-1, -1, 0, 1, 1, 0};
+
+    private static volatile Offsets offsets = new Offsets(1);
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int size;
+
+    private HexGrid(double[] latitudes, double[] longitudes, int size) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.size = size;
+    }
+
+    /**
+     * @param rings Number of rings, where the center cell is the first ring
+     * @return Number of cells in a grid with the given number of rings
+     */
+    public static int cellCount(int rings) {
+        return (rings <= 0) ? 0 : 3 * rings * (rings - 1) + 1;
+    }
+
+    /**
+     * Creates a grid centered on a location
+     *
+     * @param latitude      Latitude of the center cell
+     * @param longitude     Longitude of the center cell
+     * @param rings         Number of rings, where the center cell is the first ring
+     * @param spacingMeters Distance between neighbouring cells
+     */
+    public static HexGrid around(double latitude, double longitude, int rings, double spacingMeters) {
+        int count = cellCount(rings);
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        fill(latitude, longitude, rings, spacingMeters, latitudes, longitudes, 0);
+        return new HexGrid(latitudes, longitudes, count);
+    }
+
+    /**
+     * Creates a grid that covers a bounding box, such as the visible region of the map. Cells whose
+     * centers are more than half a spacing outside the box are left out.
+     */
+    public static HexGrid covering(double south, double west, double north, double east, double spacingMeters) {
+        if (east < west) {
+            // The box crosses the antimeridian
+            east += 360;
+        }
+
+        double centerLatitude = (south + north) / 2;
+        double centerLongitude = (west + east) / 2;
+        double cosLatitude = Math.cos(Math.toRadians(centerLatitude));
+
+        double halfHeightMeters = (north - south) / 2 * METERS_PER_DEGREE;
+        double halfWidthMeters = (east - west) / 2 * METERS_PER_DEGREE * cosLatitude;
+        double radiusMeters = Math.sqrt(halfHeightMeters * halfHeightMeters + halfWidthMeters * halfWidthMeters);
+
+        // Ring k is at least k * spacing * sqrt(3) / 2 away from the center
+        int rings = (int) Math.ceil(radiusMeters / (spacingMeters * SQRT_3_OVER_2)) + 1;
+        int count = cellCount(rings);
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        fill(centerLatitude, centerLongitude, rings, spacingMeters, latitudes, longitudes, 0);
+
+        double marginLatitude = spacingMeters / 2 / METERS_PER_DEGREE;
+        double marginLongitude = marginLatitude / cosLatitude;
+
+        // Compact the cells inside the box to the front of the buffers
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            double longitude = longitudes[i];
+            if (longitude < west - marginLongitude) {
+                longitude += 360;
+            }
+
+            if (latitudes[i] >= south - marginLatitude && latitudes[i] <= north + marginLatitude
+                    && longitude >= west - marginLongitude && longitude <= east + marginLongitude) {
+                latitudes[size] = latitudes[i];
+                longitudes[size] = longitudes[i];
+                size++;
+            }
+        }
+
+        return new HexGrid(latitudes, longitudes, size);
+    }
+
+    /**
+     * Writes the cell centers of a grid into the given buffers, which must have room for
+     * {@link #cellCount(int)} cells after the offset.
+     *
+     * @return Number of cells written
+     */
+    public static int fill(double latitude, double longitude, int rings, double spacingMeters,
+                           double[] outLatitudes, double[] outLongitudes, int offset) {
+        int count = cellCount(rings);
+        Offsets unitOffsets = offsetsFor(rings);
+
+        double latitudeStep = spacingMeters / METERS_PER_DEGREE;
+        double longitudeStep = latitudeStep / Math.cos(Math.toRadians(latitude));
+
+        for (int i = 0; i < count; i++) {
+            outLatitudes[offset + i] = latitude + unitOffsets.north[i] * latitudeStep;
+            outLongitudes[offset + i] = normalizeLongitude(longitude + unitOffsets.east[i] * longitudeStep);
+        }
+
+        return count;
+    }
+
+    /**
+     * @return Axial q coordinates of the cells of a grid relative to its center, in grid order.
+     * The array is shared and may be longer than the grid, it must not be modified.
+     */
+    static int[] axialQ(int rings) {
+        return offsetsFor(rings).q;
+    }
+
+    /**
+     * @return Axial r coordinates of the cells of a grid relative to its center, in grid order.
+     * The array is shared and may be longer than the grid, it must not be modified.
+     */
+    static int[] axialR(int rings) {
+        return offsetsFor(rings).r;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    static double normalizeLongitude(double longitude) {
+        if (longitude > 180) {
+            return longitude - 360;
+        } else if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude;
+    }
+
+    /**
+     * Offsets are stored in spiral order, so the table for a larger grid also serves every
+     * smaller one. The table is only rebuilt when a larger grid than before is requested.
+     */
+    private static Offsets offsetsFor(int rings) {
+        Offsets current = offsets;
+        if (current.rings >= rings) {
+            return current;
+        }
+
+        synchronized (HexGrid.class) {
+            if (offsets.rings < rings) {
+                offsets = new Offsets(rings);
+            }
+            return offsets;
+        }
+    }
+
+    private static class Offsets {
+
+        final int rings;
+        final int[] q;
+        final int[] r;
+        final double[] east;
+        final double[] north;
+
+        Offsets(int rings) {
+            int count = cellCount(rings);
+            this.rings = rings;
+            q = new int[count];
+            r = new int[count];
+            east = new double[count];
+            north = new double[count];
+
+            // The center cell is at (0, 0), each following ring starts due north of it
+            int index = 1;
+            for (int ring = 1; ring < rings; ring++) {
+                int cellQ = 0;
+                int cellR = ring;
+
+                for (int direction = 0; direction < 6; direction++) {
+                    for (int step = 0; step < ring; step++) {
+                        q[index] = cellQ;
+                        r[index] = cellR;
+                        index++;
+
+                        cellQ += DIRECTION_Q[direction];
+                        cellR += DIRECTION_R[direction];
+                    }
+                }
+            }
+
+            for (int i = 0; i < count; i++) {
+                east[i] = SQRT_3_OVER_2 * q[i];
+                north[i] = r[i] + q[i] / 2.0;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.anthonyng.pokemongomap.geo;
+
+/**
+ * A hexagonal lattice fixed to the globe, so that grids built around different locations share
+ * the same cells and every cell has a stable key. The globe is split into bands of latitude,
+ * and within a band longitude is scaled by the cosine of the band's middle latitude. Cells only
+ * fail to line up across the edge of a band.
+ *
+ * Keys pack the lattice level, band and axial coordinates into a long. Lattices with different
+ * levels never share keys.
+ */
+public class HexLattice {
+
+    private static final double BAND_DEGREES = 1.0;
+    private static final int BAND_OFFSET = 90;
+    private static final long COORDINATE_MASK = 0xFFFFFFL;
+
+    private final double spacingMeters;
+    private final int level;
+
+    /**
+     * @param spacingMeters Distance between neighbouring cells
+     * @param level         Distinguishes the keys of lattices with different spacings, 0 to 255
+     */
+    public HexLattice(double spacingMeters, int level) {
+        this.spacingMeters = spacingMeters;
+        this.level = level;
+    }
+
+    public double getSpacingMeters() {
+        return spacingMeters;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Level of the lattice the key belongs to
+     */
+    public static int levelOf(long key) {
+        return (int) (key >>> 56);
+    }
+
+    /**
+     * @return Key of the cell whose center is nearest to the location
+     */
+    public long cellAt(double latitude, double longitude) {
+        int band = band(latitude);
+        double x = longitude * HexGrid.METERS_PER_DEGREE * bandCos(band);
+        double y = latitude * HexGrid.METERS_PER_DEGREE;
+
+        double q = x / (spacingMeters * HexGrid.SQRT_3_OVER_2);
+        double r = y / spacingMeters - q / 2;
+        return roundedKey(band, q, r);
+    }
+
+    public double latitudeOf(long key) {
+        int q = axialQ(key);
+        int r = axialR(key);
+        return spacingMeters * (r + q / 2.0) / HexGrid.METERS_PER_DEGREE;
+    }
+
+    public double longitudeOf(long key) {
+        int q = axialQ(key);
+        double x = spacingMeters * HexGrid.SQRT_3_OVER_2 * q;
+        return HexGrid.normalizeLongitude(x / (HexGrid.METERS_PER_DEGREE * bandCos(band(key))));
+    }
+
+    /**
+     * Writes the keys of a grid of cells around the lattice cell nearest to a location, in the
+     * same ring order as {@link HexGrid}
+     *
+     * @return Number of keys written
+     */
+    public int cellsAround(double latitude, double longitude, int rings, long[] outKeys, int offset) {
+        long centerKey = cellAt(latitude, longitude);
+        return cellsAround(centerKey, rings, outKeys, offset);
+    }
+
+    /**
+     * Writes the keys of a grid of cells around a lattice cell, in the same ring order as {@link HexGrid}
+     *
+     * @return Number of keys written
+     */
+    public int cellsAround(long centerKey, int rings, long[] outKeys, int offset) {
+        int count = HexGrid.cellCount(rings);
+        int[] offsetQ = HexGrid.axialQ(rings);
+        int[] offsetR = HexGrid.axialR(rings);
+
+        int band = band(centerKey);
+        int centerQ = axialQ(centerKey);
+        int centerR = axialR(centerKey);
+
+        for (int i = 0; i < count; i++) {
+            outKeys[offset + i] = key(band, centerQ + offsetQ[i], centerR + offsetR[i]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Splits the lattice into three interleaved lattices, each with neighbours sqrt(3) times
+     * further apart. Neighbouring cells are never in the same sublattice.
+     *
+     * @return Sublattice of the cell, 0 to 2
+     */
+    public static int sublattice(long key) {
+        return ((axialQ(key) - axialR(key)) % 3 + 3) % 3;
+    }
+
+    /**
+     * @return Number of lattice steps between two cells of the same band
+     */
+    public static int distance(long fromKey, long toKey) {
+        int dq = axialQ(toKey) - axialQ(fromKey);
+        int dr = axialR(toKey) - axialR(fromKey);
+        return (Math.abs(dq) + Math.abs(dr) + Math.abs(dq + dr)) / 2;
+    }
+
+    private long roundedKey(int band, double q, double r) {
+        // Round in cube coordinates, fixing up the component with the largest rounding error
+        double s = -q - r;
+        long roundedQ = Math.round(q);
+        long roundedR = Math.round(r);
+        long roundedS = Math.round(s);
+
+        double errorQ = Math.abs(roundedQ - q);
+        double errorR = Math.abs(roundedR - r);
+        double errorS = Math.abs(roundedS - s);
+
+        if (errorQ > errorR && errorQ > errorS) {
+            roundedQ = -roundedR - roundedS;
+        } else if (errorR > errorS) {
+            roundedR = -roundedQ - roundedS;
+        }
+
+        return key(band, (int) roundedQ, (int) roundedR);
+    }
+
+    private long key(int band, int q, int r) {
+        return ((long) level << 56)
+                | ((long) (band + BAND_OFFSET) << 48)
+                | ((q & COORDINATE_MASK) << 24)
+                | (r & COORDINATE_MASK);
+    }
+
+    private static int band(double latitude) {
+        return (int) Math.floor(latitude / BAND_DEGREES);
+    }
+
+    private static int band(long key) {
+        return (int) ((key >>> 48) & 0xFF) - BAND_OFFSET;
+    }
+
+    private static double bandCos(int band) {
+        return Math.cos(Math.toRadians((band + 0.5) * BAND_DEGREES));
+    }
+
+    private static int axialQ(long key) {
+        // Shift up and back down to sign extend the 24 bit value
+        return (int) ((key >> 24) << 40 >> 40);
+    }
+
+    private static int axialR(long key) {
+        return (int) (key << 40 >> 40);
+    }
+}
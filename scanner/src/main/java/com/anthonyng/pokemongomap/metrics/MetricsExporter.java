@@ -0,0 +1,78 @@
+package com.anthonyng.pokemongomap.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Appends lines to a set of rolling files. Once the current file is full it becomes the first
+ * numbered file, older files move up by one and the oldest is deleted, so the export never takes
+ * more than maxFiles times maxFileBytes.
+ */
+public class MetricsExporter {
+
+    private static final String EXTENSION = ".ndjson";
+
+    private final File directory;
+    private final String baseName;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    /**
+     * @param maxFiles Number of files kept, including the one being written
+     */
+    public MetricsExporter(File directory, String baseName, long maxFileBytes, int maxFiles) {
+        if (maxFileBytes < 1 || maxFiles < 1) {
+            throw new IllegalArgumentException("maxFileBytes and maxFiles must be positive");
+        }
+
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+    }
+
+    public synchronized void append(String line) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        byte[] bytes = (line + "\n").getBytes("UTF-8");
+        File current = file(0);
+        if (current.length() > 0 && current.length() + bytes.length > maxFileBytes) {
+            roll();
+        }
+
+        FileOutputStream outputStream = new FileOutputStream(current, true);
+        try {
+            outputStream.write(bytes);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * @return Directory the files are written to
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    private void roll() throws IOException {
+        File oldest = file(maxFiles - 1);
+        if (oldest.exists() && !oldest.delete()) {
+            throw new IOException("Unable to delete " + oldest);
+        }
+
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File file = file(i);
+            if (file.exists() && !file.renameTo(file(i + 1))) {
+                throw new IOException("Unable to rename " + file);
+            }
+        }
+    }
+
+    private File file(int index) {
+        return new File(directory, index == 0 ? baseName + EXTENSION : baseName + "." + index + EXTENSION);
+    }
+}
@@ -0,0 +1,125 @@
+package com.anthonyng.pokemongomap.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Timings and counters for every stage of a scan, from logging in to placing markers. Nothing is
+ * recorded while disabled, and a disabled timer costs a single volatile read:
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.stop(PipelineMetrics.Stage.FETCH, start);
+ * </pre>
+ */
+public class PipelineMetrics {
+
+    public enum Stage {
+        LOGIN,
+        // A single map request
+        FETCH,
+        // A cell from being handed to a worker until its result, with session and permit waits and retries
+        CELL,
+        FILTER,
+        ADD_MARKER
+    }
+
+    public enum Counter {
+        CELLS, SIGHTINGS, DUPLICATES, ERRORS
+    }
+
+    private volatile boolean enabled;
+    private final Histogram[] histograms = new Histogram[Stage.values().length];
+    private final AtomicLongArray counters = new AtomicLongArray(Counter.values().length);
+
+    public PipelineMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return Start time to pass to {@link #stop(Stage, long)}, or 0 while disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void stop(Stage stage, long startNanos) {
+        if (startNanos != 0) {
+            histograms[stage.ordinal()].recordNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void increment(Counter counter, long delta) {
+        if (enabled) {
+            counters.addAndGet(counter.ordinal(), delta);
+        }
+    }
+
+    public Histogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public long getCount(Counter counter) {
+        return counters.get(counter.ordinal());
+    }
+
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * @return Everything recorded as a single line of JSON
+     */
+    public String toJson(long timestampMs) {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"timestamp\":").append(timestampMs);
+        for (Counter counter : Counter.values()) {
+            json.append(",\"").append(counter.name().toLowerCase(Locale.US)).append("\":")
+                    .append(getCount(counter));
+        }
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = getHistogram(stage);
+            json.append(",\"").append(stage.name().toLowerCase(Locale.US)).append("\":{")
+                    .append("\"count\":").append(histogram.getCount())
+                    .append(",\"meanUs\":").append(histogram.getMeanMicros())
+                    .append(",\"p50Us\":").append(histogram.percentileMicros(50))
+                    .append(",\"p99Us\":").append(histogram.percentileMicros(99))
+                    .append(",\"maxUs\":").append(histogram.getMaxMicros())
+                    .append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * @return Everything recorded as short lines of text, one per stage and one for the counters
+     */
+    public String toSummary() {
+        StringBuilder summary = new StringBuilder(256);
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = getHistogram(stage);
+            summary.append(String.format(Locale.US, "%-10s n=%-6d p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    stage.name().toLowerCase(Locale.US), histogram.getCount(),
+                    histogram.percentileMicros(50) / 1000.0, histogram.percentileMicros(99) / 1000.0,
+                    histogram.getMaxMicros() / 1000.0));
+        }
+        for (Counter counter : Counter.values()) {
+            summary.append(counter.name().toLowerCase(Locale.US)).append('=').append(getCount(counter)).append(' ');
+        }
+        return summary.toString().trim();
+    }
+}
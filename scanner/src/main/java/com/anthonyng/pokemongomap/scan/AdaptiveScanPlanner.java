@@ -0,0 +1,139 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.geo.HexLattice;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which cells to scan for an area. The grid is sized to the area being looked at, and
+ * what was found in earlier scans shifts requests towards cells where pokemon actually spawn:
+ * <ul>
+ * <li>Cells that keep coming back empty are only scanned on one of the three sublattices, which
+ * widens the spacing there by sqrt(3)</li>
+ * <li>Cells that return many spawns get the six cells of a lattice with half the spacing around
+ * them</li>
+ * </ul>
+ */
+public class AdaptiveScanPlanner {
+
+    public static final int MIN_RINGS = 2;
+    public static final int MAX_RINGS = 20;
+
+    // Number of empty scans in a row before a cell is thinned out
+    private static final int COLD_EMPTY_STREAK = 3;
+    // Number of spawns in a single scan that makes a cell worth densifying
+    private static final int HOT_SPAWN_COUNT = 4;
+    private static final int MAX_TRACKED_CELLS = 20000;
+
+    private final HexLattice lattice;
+    private final HexLattice denseLattice;
+    private final LinkedHashMap<Long, CellStats> cellStats;
+
+    public AdaptiveScanPlanner(double spacingMeters) {
+        lattice = new HexLattice(spacingMeters, 0);
+        denseLattice = new HexLattice(spacingMeters / 2, 1);
+        cellStats = new LinkedHashMap<Long, CellStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CellStats> eldest) {
+                return size() > MAX_TRACKED_CELLS;
+            }
+        };
+    }
+
+    public HexLattice getLattice() {
+        return lattice;
+    }
+
+    /**
+     * @param radiusMeters Distance from the center to the edge of the area to cover
+     * @return Number of rings needed to cover the area, within the planner's limits
+     */
+    public int ringsFor(double radiusMeters) {
+        // Ring k is at least k * spacing * sqrt(3) / 2 away from the center
+        double ringWidthMeters = lattice.getSpacingMeters() * Math.sqrt(3) / 2;
+        int rings = (int) Math.ceil(radiusMeters / ringWidthMeters) + 1;
+        return Math.max(MIN_RINGS, Math.min(MAX_RINGS, rings));
+    }
+
+    /**
+     * Plans the cells for an area, nearest first
+     *
+     * @param radiusMeters Distance from the center to the edge of the area to cover
+     */
+    public synchronized List<ScanCell> plan(double latitude, double longitude, double radiusMeters) {
+        int rings = ringsFor(radiusMeters);
+        long[] keys = new long[HexGrid.cellCount(rings)];
+        int count = lattice.cellsAround(latitude, longitude, rings, keys, 0);
+
+        List<ScanCell> cells = new ArrayList<>(count);
+        HashSet<Long> denseKeys = new HashSet<>();
+        long[] neighbourKeys = new long[HexGrid.cellCount(2)];
+
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            CellStats stats = cellStats.get(key);
+
+            if (stats != null && stats.emptyStreak >= COLD_EMPTY_STREAK && HexLattice.sublattice(key) != 0) {
+                continue;
+            }
+
+            double cellLatitude = lattice.latitudeOf(key);
+            double cellLongitude = lattice.longitudeOf(key);
+            cells.add(new ScanCell(key, cellLatitude, cellLongitude));
+
+            if (stats != null && stats.lastSpawnCount >= HOT_SPAWN_COUNT) {
+                // The first cell is the dense lattice cell under the cell itself
+                int neighbourCount = denseLattice.cellsAround(cellLatitude, cellLongitude, 2, neighbourKeys, 0);
+                for (int j = 1; j < neighbourCount; j++) {
+                    long denseKey = neighbourKeys[j];
+                    if (denseKeys.add(denseKey)) {
+                        cells.add(new ScanCell(denseKey, denseLattice.latitudeOf(denseKey),
+                                denseLattice.longitudeOf(denseKey)));
+                    }
+                }
+            }
+        }
+
+        return cells;
+    }
+
+    /**
+     * Learns from the result of a scanned cell. Results answered from the cache should not be
+     * recorded as they were already counted when fetched.
+     */
+    public synchronized void record(CellResult cellResult) {
+        long key = cellResult.getCell().getKey();
+        CellStats stats = cellStats.get(key);
+        if (stats == null) {
+            stats = new CellStats();
+            cellStats.put(key, stats);
+        }
+
+        int spawnCount = cellResult.getAllSightings().size();
+        stats.lastSpawnCount = spawnCount;
+        stats.emptyStreak = spawnCount == 0 ? stats.emptyStreak + 1 : 0;
+
+        if (spawnCount > 0 && HexLattice.levelOf(key) == lattice.getLevel()) {
+            // Thinned out neighbours are no longer scanned themselves, wake them up from here
+            long[] neighbourKeys = new long[HexGrid.cellCount(2)];
+            int neighbourCount = lattice.cellsAround(key, 2, neighbourKeys, 0);
+            for (int i = 1; i < neighbourCount; i++) {
+                CellStats neighbourStats = cellStats.get(neighbourKeys[i]);
+                if (neighbourStats != null) {
+                    neighbourStats.emptyStreak = 0;
+                }
+            }
+        }
+    }
+
+    private static class CellStats {
+
+        int emptyStreak;
+        int lastSpawnCount;
+    }
+}
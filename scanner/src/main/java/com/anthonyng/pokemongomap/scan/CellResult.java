@@ -0,0 +1,49 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import java.util.List;
+
+/**
+ * Pokemon found while scanning a single cell. Besides the sightings that passed the filter, the
+ * result keeps every sighting in the cell for bookkeeping such as spawn density.
+ */
+public class CellResult {
+
+    private final ScanCell cell;
+    private final List<Sighting> allSightings;
+    private final List<Sighting> sightings;
+    private final boolean fromCache;
+
+    public CellResult(ScanCell cell, List<Sighting> allSightings, List<Sighting> sightings, boolean fromCache) {
+        this.cell = cell;
+        this.allSightings = allSightings;
+        this.sightings = sightings;
+        this.fromCache = fromCache;
+    }
+
+    public ScanCell getCell() {
+        return cell;
+    }
+
+    /**
+     * @return Sightings that passed the filter
+     */
+    public List<Sighting> getSightings() {
+        return sightings;
+    }
+
+    /**
+     * @return Every sighting in the cell, including filtered ones
+     */
+    public List<Sighting> getAllSightings() {
+        return allSightings;
+    }
+
+    /**
+     * @return True if the cell was answered from recent results instead of being fetched
+     */
+    public boolean isFromCache() {
+        return fromCache;
+    }
+}
@@ -0,0 +1,139 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Splits the cells of a scan into one shard per account. Cells are dealt out in turn, so every
+ * shard starts with its share of the cells nearest the center. An account that runs out of cells
+ * steals from the far end of the largest remaining shard, and the cells of an account that fails
+ * are handed to the accounts that are still working.
+ *
+ * A cell counts as outstanding until it is finished, and workers of a shard in use wait for more
+ * cells while any are outstanding, so cells handed over by a failing account late in a scan
+ * always find a worker.
+ */
+class CellShards {
+
+    private final ArrayDeque<ScanCell>[] shards;
+    private final boolean[] retired;
+    private int liveShards;
+    private int outstandingCells;
+    private boolean cancelled;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    CellShards(List<ScanCell> cells, int shardCount) {
+        shards = new ArrayDeque[shardCount];
+        retired = new boolean[shardCount];
+        liveShards = shardCount;
+        outstandingCells = cells.size();
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ArrayDeque<>(cells.size() / shardCount + 1);
+        }
+        for (int i = 0; i < cells.size(); i++) {
+            shards[i % shardCount].addLast(cells.get(i));
+        }
+    }
+
+    /**
+     * Hands out the next cell for the shard, stolen from another shard once the shard is empty.
+     * While the shard is empty and cells are still being worked on elsewhere, waits in case they
+     * are handed over.
+     *
+     * @return Next cell, or null if the shard was retired, every cell is finished or the scan was
+     * cancelled
+     */
+    synchronized ScanCell take(int shard) throws InterruptedException {
+        while (true) {
+            if (retired[shard] || cancelled) {
+                return null;
+            }
+
+            ScanCell cell = shards[shard].pollFirst();
+            if (cell != null) {
+                return cell;
+            }
+
+            ArrayDeque<ScanCell> largest = null;
+            for (ArrayDeque<ScanCell> other : shards) {
+                if (largest == null || other.size() > largest.size()) {
+                    largest = other;
+                }
+            }
+
+            cell = largest.pollLast();
+            if (cell != null) {
+                return cell;
+            }
+
+            if (outstandingCells == 0) {
+                return null;
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Marks a cell that was handed out as finished
+     */
+    synchronized void finish() {
+        outstandingCells--;
+        if (outstandingCells == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Stops handing out cells to a shard and deals its remaining cells, plus the cell that failed,
+     * to the shards still in use
+     *
+     * @param failedCell Cell the shard was working on, may be null
+     * @return False if no other shard is left to take the cells over
+     */
+    synchronized boolean retire(int shard, ScanCell failedCell) {
+        if (failedCell != null) {
+            shards[shard].addFirst(failedCell);
+        }
+
+        if (!retired[shard]) {
+            if (liveShards == 1) {
+                return false;
+            }
+            retired[shard] = true;
+            liveShards--;
+        }
+
+        // Keep the nearest cells at the front so they are still scanned first
+        int target = 0;
+        ScanCell cell;
+        while ((cell = shards[shard].pollLast()) != null) {
+            while (retired[target]) {
+                target = (target + 1) % shards.length;
+            }
+            shards[target].addFirst(cell);
+            target = (target + 1) % shards.length;
+        }
+
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Drops every cell that has not been handed out and wakes up waiting workers
+     *
+     * @return Number of cells dropped
+     */
+    synchronized int cancel() {
+        cancelled = true;
+
+        int count = 0;
+        for (ArrayDeque<ScanCell> shard : shards) {
+            count += shard.size();
+            shard.clear();
+        }
+
+        notifyAll();
+        return count;
+    }
+}
@@ -0,0 +1,117 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps track of which planned cells around a moving center have been scanned, so that moving
+ * only costs the cells that newly entered the covered area and the cells whose last scan is too
+ * old to trust. Cells that leave the area are retired and scanned again if they ever come back
+ * into it.
+ */
+public class CoverageTracker {
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    private final double moveThresholdMeters;
+    private final long rescanAfterMs;
+
+    private boolean hasCenter = false;
+    private double centerLatitude;
+    private double centerLongitude;
+
+    private final HashSet<Long> coveredKeys = new HashSet<>();
+    // Time every covered cell was last scanned, by cell key
+    private final HashMap<Long, Long> scanTimesMs = new HashMap<>();
+    private int lastRetiredCount;
+
+    /**
+     * @param moveThresholdMeters Distance the center has to move before the covered area is updated,
+     *                            so location jitter does not cause scans
+     * @param rescanAfterMs       Age after which a scanned cell counts as unscanned again, normally
+     *                            the time to live of the scan result cache
+     */
+    public CoverageTracker(double moveThresholdMeters, long rescanAfterMs) {
+        this.moveThresholdMeters = moveThresholdMeters;
+        this.rescanAfterMs = rescanAfterMs;
+    }
+
+    /**
+     * @return True if there is no covered area yet or the location is past the move threshold
+     */
+    public synchronized boolean hasMovedAway(double latitude, double longitude) {
+        if (!hasCenter) {
+            return true;
+        }
+
+        double north = (latitude - centerLatitude) * METERS_PER_DEGREE;
+        double east = (longitude - centerLongitude) * METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+        return north * north + east * east >= moveThresholdMeters * moveThresholdMeters;
+    }
+
+    /**
+     * Moves the covered area. Scanned cells outside the new area are retired.
+     *
+     * @param plannedCells Cells covering the area around the new center, nearest first
+     * @return Planned cells that have not been scanned yet or were scanned too long ago, nearest first
+     */
+    public synchronized List<ScanCell> moveTo(double latitude, double longitude, List<ScanCell> plannedCells,
+                                              long nowMs) {
+        hasCenter = true;
+        centerLatitude = latitude;
+        centerLongitude = longitude;
+
+        coveredKeys.clear();
+        List<ScanCell> unscannedCells = new ArrayList<>();
+        for (ScanCell cell : plannedCells) {
+            coveredKeys.add(cell.getKey());
+            Long scanTimeMs = scanTimesMs.get(cell.getKey());
+            if (scanTimeMs == null || nowMs - scanTimeMs >= rescanAfterMs) {
+                unscannedCells.add(cell);
+            }
+        }
+
+        lastRetiredCount = 0;
+        Iterator<Long> iterator = scanTimesMs.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!coveredKeys.contains(iterator.next())) {
+                iterator.remove();
+                lastRetiredCount++;
+            }
+        }
+
+        return unscannedCells;
+    }
+
+    /**
+     * Records that a cell was scanned. Cells outside the covered area are ignored, they may have
+     * been retired while their result was on its way.
+     *
+     * @param scanTimeMs Time the result of the cell was fetched from the server
+     */
+    public synchronized void markScanned(long cellKey, long scanTimeMs) {
+        if (coveredKeys.contains(cellKey)) {
+            scanTimesMs.put(cellKey, scanTimeMs);
+        }
+    }
+
+    /**
+     * Forgets the covered area, the next move scans every planned cell
+     */
+    public synchronized void reset() {
+        hasCenter = false;
+        coveredKeys.clear();
+        scanTimesMs.clear();
+        lastRetiredCount = 0;
+    }
+
+    /**
+     * @return Number of scanned cells retired by the last move
+     */
+    public synchronized int getLastRetiredCount() {
+        return lastRetiredCount;
+    }
+}
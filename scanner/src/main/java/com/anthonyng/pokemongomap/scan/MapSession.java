@@ -0,0 +1,23 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import java.util.List;
+
+/**
+ * A logged in session with a map object server, lent out by a {@link SessionPool}. A session is
+ * only used by one scan worker at a time.
+ */
+public interface MapSession {
+
+    /**
+     * @return Pokemon that can be caught around the location
+     */
+    List<Sighting> getCatchablePokemon(double latitude, double longitude) throws Exception;
+
+    /**
+     * @param nowMs Current time
+     * @return Milliseconds since the session logged in
+     */
+    long getAgeMs(long nowMs);
+}
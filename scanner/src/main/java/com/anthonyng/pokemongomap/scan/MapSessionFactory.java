@@ -0,0 +1,9 @@
+package com.anthonyng.pokemongomap.scan;
+
+/**
+ * Logs in new sessions for a {@link SessionPool}
+ */
+public interface MapSessionFactory {
+
+    MapSession login() throws Exception;
+}
@@ -0,0 +1,67 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.api.map.pokemon.CatchablePokemon;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An authenticated Pokemon Go session along with the time it logged in
+ */
+public class PokemonGoSession implements MapSession {
+
+    // Pokemon without a known expiration are assumed to stay for the usual 15 minutes
+    private static final long UNKNOWN_EXPIRATION_LIFETIME_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final PokemonGo pokemonGo;
+    private final long loginTimeMs;
+
+    public PokemonGoSession(PokemonGo pokemonGo, long loginTimeMs) {
+        this.pokemonGo = pokemonGo;
+        this.loginTimeMs = loginTimeMs;
+    }
+
+    public PokemonGo getPokemonGo() {
+        return pokemonGo;
+    }
+
+    @Override
+    public List<Sighting> getCatchablePokemon(double latitude, double longitude)
+            throws LoginFailedException, RemoteServerException {
+        pokemonGo.setLocation(latitude, longitude, 0);
+        return toSightings(pokemonGo.getMap().getCatchablePokemon(), System.currentTimeMillis());
+    }
+
+    @Override
+    public long getAgeMs(long nowMs) {
+        return nowMs - loginTimeMs;
+    }
+
+    private static List<Sighting> toSightings(List<CatchablePokemon> catchablePokemonList, long nowMs) {
+        List<Sighting> sightings = new ArrayList<>(catchablePokemonList.size());
+
+        for (CatchablePokemon catchablePokemon : catchablePokemonList) {
+            long expirationTimestampMs = catchablePokemon.getExpirationTimestampMs();
+            boolean expirationKnown = expirationTimestampMs != -1;
+            if (!expirationKnown) {
+                expirationTimestampMs = nowMs + UNKNOWN_EXPIRATION_LIFETIME_MS;
+            }
+
+            sightings.add(new Sighting(catchablePokemon.getSpawnPointId(),
+                    catchablePokemon.getEncounterId(),
+                    catchablePokemon.getPokemonId().getNumber(),
+                    catchablePokemon.getPokemonId().name(),
+                    catchablePokemon.getLatitude(),
+                    catchablePokemon.getLongitude(),
+                    expirationTimestampMs,
+                    expirationKnown));
+        }
+
+        return sightings;
+    }
+}
@@ -0,0 +1,334 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * Scans cells for catchable pokemon. The cells of a scan are split into one shard per account and
+ * every account works through its shard with its own sessions and request budget, so a scan takes
+ * roughly (cells / total sessions) round trips as long as no account is throttled. Accounts that
+ * finish early take cells from the others, and the cells of an account that fails are handed to
+ * the rest. Cells that were scanned recently are answered from a cache instead.
+ *
+ * Unsubscribing from a scan cancels it. Cells that have not started are skipped and cells that
+ * are waiting for a session give up before making a request. Requests already on the wire are
+ * left to finish since the session cannot be interrupted safely.
+ */
+public class PokemonScanner {
+
+    private final List<ScanAccount> accounts;
+    private final ScanConfig config;
+    private final SightingFilter sightingFilter;
+    private final ScanResultCache resultCache;
+    private final RequestGovernor requestGovernor;
+    private final ScanMetrics metrics = new ScanMetrics();
+    private final PipelineMetrics pipelineMetrics;
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+
+    /**
+     * Creates a scanner that makes every request with the sessions of a single account
+     *
+     * @param sightingFilter Sightings the filter rejects are dropped on the workers and never emitted
+     */
+    public PokemonScanner(SessionPool sessionPool, ScanConfig config, SightingFilter sightingFilter) {
+        this(Collections.singletonList(new ScanAccount("default", sessionPool)), config, sightingFilter,
+                new PipelineMetrics());
+    }
+
+    /**
+     * @param accounts        Accounts to share the cells of every scan between, at least one
+     * @param sightingFilter  Sightings the filter rejects are dropped on the workers and never emitted
+     * @param pipelineMetrics Receives the request, cell and filter timings of every cell
+     */
+    public PokemonScanner(List<ScanAccount> accounts, ScanConfig config, SightingFilter sightingFilter,
+                          PipelineMetrics pipelineMetrics) {
+        if (accounts.isEmpty()) {
+            throw new IllegalArgumentException("At least one account is needed");
+        }
+
+        this.accounts = new ArrayList<>(accounts);
+        this.pipelineMetrics = pipelineMetrics;
+        this.config = config;
+        this.sightingFilter = sightingFilter;
+        this.resultCache = new ScanResultCache(config.getCacheTimeToLiveMs(), config.getCacheMaxCells());
+        this.requestGovernor = new RequestGovernor(config);
+
+        // One worker for every session any account can have
+        int workers = 0;
+        for (ScanAccount account : accounts) {
+            workers += account.getSessionPool().getMaxSessions();
+        }
+
+        this.executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                metrics.onWorkerThreadCreated();
+                return new Thread(runnable, "PokemonScanner-" + metrics.getWorkerThreads());
+            }
+        });
+        this.scheduler = Schedulers.from(executor);
+    }
+
+    /**
+     * Scans the given cells. Cached cells are emitted first, then cells that are missing from the
+     * cache or stale are fetched. Cells past the cell cap of the scan config are dropped.
+     *
+     * @param cells Cells to scan, nearest first
+     * @return Observable emitting the result of each cell as soon as that cell is scanned
+     */
+    public Observable<CellResult> scan(List<ScanCell> cells) {
+        return scan(cells, true);
+    }
+
+    /**
+     * Fetches the given cells even if they were scanned recently, for cells where something is
+     * known to have changed since
+     *
+     * @param cells Cells to scan, nearest first
+     * @return Observable emitting the result of each cell as soon as that cell is scanned
+     */
+    public Observable<CellResult> rescan(List<ScanCell> cells) {
+        return scan(cells, false);
+    }
+
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PipelineMetrics getPipelineMetrics() {
+        return pipelineMetrics;
+    }
+
+    public RequestGovernor getRequestGovernor() {
+        return requestGovernor;
+    }
+
+    public List<ScanAccount> getAccounts() {
+        return Collections.unmodifiableList(accounts);
+    }
+
+    /**
+     * Stops the workers. The scanner cannot be used afterwards, the session pools are left running.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Observable<CellResult> scan(List<ScanCell> cells, boolean useCache) {
+        long nowMs = System.currentTimeMillis();
+        List<CellResult> cachedResults = new ArrayList<>();
+        List<ScanCell> staleCells = new ArrayList<>();
+        int droppedCells = 0;
+
+        for (ScanCell cell : cells) {
+            List<Sighting> cachedSightings = useCache ? resultCache.get(cell.getKey(), nowMs) : null;
+            if (cachedSightings != null) {
+                cachedResults.add(new CellResult(cell, cachedSightings, filter(cachedSightings, nowMs), true));
+            } else if (staleCells.size() < config.getMaxCellsPerScan()) {
+                staleCells.add(cell);
+            } else {
+                droppedCells++;
+            }
+        }
+        if (droppedCells > 0) {
+            metrics.onCellsDropped(droppedCells);
+        }
+
+        if (staleCells.isEmpty()) {
+            return Observable.from(cachedResults);
+        }
+
+        // Accounts that failed recently sit the scan out, unless no account is left
+        List<ScanAccount> scanAccounts = new ArrayList<>();
+        for (ScanAccount account : accounts) {
+            if (account.isAvailable(nowMs)) {
+                scanAccounts.add(account);
+            }
+        }
+        if (scanAccounts.isEmpty()) {
+            scanAccounts.addAll(accounts);
+        }
+
+        final List<ScanCell> cellsToFetch = staleCells;
+        final List<ScanAccount> fetchAccounts = scanAccounts;
+        Observable<CellResult> fetchedResults = Observable.defer(new Func0<Observable<CellResult>>() {
+            @Override
+            public Observable<CellResult> call() {
+                return fetchSharded(cellsToFetch, fetchAccounts);
+            }
+        });
+
+        return Observable.from(cachedResults).concatWith(fetchedResults);
+    }
+
+    /**
+     * Shares the cells between the accounts, with one worker for every session of an account
+     */
+    private Observable<CellResult> fetchSharded(List<ScanCell> cells, List<ScanAccount> accounts) {
+        final CellShards shards = new CellShards(cells, accounts.size());
+        List<Observable<CellResult>> workers = new ArrayList<>();
+        for (int shard = 0; shard < accounts.size(); shard++) {
+            final ScanAccount account = accounts.get(shard);
+            final int accountShard = shard;
+
+            int sessions = Math.min(account.getSessionPool().getMaxSessions(), cells.size());
+            for (int i = 0; i < sessions; i++) {
+                workers.add(Observable.create(new Observable.OnSubscribe<CellResult>() {
+                    @Override
+                    public void call(Subscriber<? super CellResult> subscriber) {
+                        work(account, accountShard, shards, subscriber);
+                    }
+                }).onBackpressureBuffer().subscribeOn(scheduler));
+            }
+        }
+
+        // Cancelling the scan also wakes up workers waiting for cells
+        return Observable.merge(workers)
+                .doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        metrics.onCellsCancelled(shards.cancel());
+                    }
+                });
+    }
+
+    /**
+     * Fetches cells of the account's shard until every cell of the scan is finished. If the
+     * account fails, the rest of its shard is handed to the other accounts and the worker stops.
+     */
+    private void work(ScanAccount account, int shard, CellShards shards, Subscriber<? super CellResult> subscriber) {
+        try {
+            ScanCell cell;
+            while ((cell = shards.take(shard)) != null) {
+                if (subscriber.isUnsubscribed()) {
+                    metrics.onCellsCancelled(1 + shards.cancel());
+                    return;
+                }
+
+                long cellStartNanos = pipelineMetrics.start();
+                CellResult result;
+                try {
+                    result = fetch(account, cell, subscriber);
+                } catch (Exception e) {
+                    pipelineMetrics.increment(PipelineMetrics.Counter.ERRORS, 1);
+                    account.onFailure(System.currentTimeMillis(), config.getInitialBackoffMs(),
+                            config.getMaxBackoffMs());
+
+                    if (!shards.retire(shard, cell)) {
+                        // Every other account has failed as well
+                        subscriber.onError(e);
+                        return;
+                    }
+                    break;
+                }
+
+                account.onSuccess();
+                shards.finish();
+                if (result != null) {
+                    pipelineMetrics.stop(PipelineMetrics.Stage.CELL, cellStartNanos);
+                    subscriber.onNext(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            // The scanner was shut down
+            subscriber.onError(e);
+            return;
+        }
+
+        subscriber.onCompleted();
+    }
+
+    /**
+     * @return Result of the cell, or null if the scan was cancelled
+     */
+    private CellResult fetch(ScanAccount account, ScanCell cell, Subscriber<?> subscriber) throws Exception {
+        metrics.onFetchStarted();
+        try {
+            List<Sighting> sightings = request(account, cell, subscriber);
+            if (sightings == null) {
+                metrics.onCellCancelled();
+                return null;
+            }
+
+            // Cache everything so a change to the filter applies to cached cells as well
+            long nowMs = System.currentTimeMillis();
+            resultCache.put(cell.getKey(), sightings, nowMs);
+
+            if (subscriber.isUnsubscribed()) {
+                metrics.onWastedRequest();
+                return null;
+            }
+
+            pipelineMetrics.increment(PipelineMetrics.Counter.CELLS, 1);
+            pipelineMetrics.increment(PipelineMetrics.Counter.SIGHTINGS, sightings.size());
+            return new CellResult(cell, sightings, filter(sightings, nowMs), false);
+        } finally {
+            metrics.onFetchFinished();
+        }
+    }
+
+    /**
+     * @return Pokemon in the cell, or null if the scan was cancelled before the request was made
+     */
+    private List<Sighting> request(ScanAccount account, final ScanCell cell, Subscriber<?> subscriber)
+            throws Exception {
+        // Each worker borrows its own session since the location is stored on the session
+        SessionPool sessionPool = account.getSessionPool();
+        final MapSession session = sessionPool.acquire(subscriber);
+        if (session == null) {
+            return null;
+        }
+
+        try {
+            if (subscriber.isUnsubscribed()) {
+                return null;
+            }
+
+            // All traffic goes through the governor, which paces and retries requests
+            return requestGovernor.execute(account, session, subscriber, new Callable<List<Sighting>>() {
+                @Override
+                public List<Sighting> call() throws Exception {
+                    metrics.onRequest();
+                    long startNanos = pipelineMetrics.start();
+                    try {
+                        return session.getCatchablePokemon(cell.getLatitude(), cell.getLongitude());
+                    } finally {
+                        pipelineMetrics.stop(PipelineMetrics.Stage.FETCH, startNanos);
+                    }
+                }
+            });
+        } finally {
+            sessionPool.release(session);
+        }
+    }
+
+    private List<Sighting> filter(List<Sighting> sightings, long nowMs) {
+        long startNanos = pipelineMetrics.start();
+        List<Sighting> filteredSightings = new ArrayList<>(sightings.size());
+        for (int i = 0; i < sightings.size(); i++) {
+            Sighting sighting = sightings.get(i);
+            if (!sighting.isExpired(nowMs) && sightingFilter.accept(sighting)) {
+                filteredSightings.add(sighting);
+            }
+        }
+        pipelineMetrics.stop(PipelineMetrics.Stage.FILTER, startNanos);
+        return filteredSightings;
+    }
+}
@@ -0,0 +1,89 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func1;
+
+/**
+ * Rescans the area being watched only where a known spawn point has spawned since its cell was
+ * last scanned. Once the spawn points of an area are learned this replaces blanket rescans.
+ * Results of other scans should be recorded in the {@link SpawnPointTracker} by whoever runs them.
+ */
+public class PredictiveScanScheduler {
+
+    public static final long DEFAULT_PERIOD_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final PokemonScanner pokemonScanner;
+    private final SpawnPointTracker spawnPointTracker;
+    private final long periodMs;
+
+    // Area being watched, set from any thread
+    private volatile Area area;
+
+    public PredictiveScanScheduler(PokemonScanner pokemonScanner, SpawnPointTracker spawnPointTracker, long periodMs) {
+        this.pokemonScanner = pokemonScanner;
+        this.spawnPointTracker = spawnPointTracker;
+        this.periodMs = periodMs;
+    }
+
+    /**
+     * Sets the area whose spawn points are rescanned
+     */
+    public void setArea(double latitude, double longitude, double radiusMeters) {
+        area = new Area(latitude, longitude, radiusMeters);
+    }
+
+    /**
+     * Checks for due cells every period and rescans them. A check waits for the rescan of the
+     * previous one to finish, and a failed rescan is retried by the next check.
+     *
+     * @return Observable emitting the result of every rescanned cell until unsubscribed
+     */
+    public Observable<CellResult> results() {
+        return Observable.interval(periodMs, periodMs, TimeUnit.MILLISECONDS)
+                .onBackpressureDrop()
+                .concatMap(new Func1<Long, Observable<CellResult>>() {
+                    @Override
+                    public Observable<CellResult> call(Long tick) {
+                        Area area = PredictiveScanScheduler.this.area;
+                        if (area == null) {
+                            return Observable.empty();
+                        }
+
+                        List<ScanCell> cells = spawnPointTracker.dueCells(System.currentTimeMillis(),
+                                area.latitude, area.longitude, area.radiusMeters);
+                        if (cells.isEmpty()) {
+                            return Observable.empty();
+                        }
+
+                        return pokemonScanner.rescan(cells)
+                                .doOnNext(recordResult)
+                                .onErrorResumeNext(Observable.<CellResult>empty());
+                    }
+                });
+    }
+
+    // Rescanned cells are recorded here so they are not due again even if nobody records them
+    private final Action1<CellResult> recordResult = new Action1<CellResult>() {
+        @Override
+        public void call(CellResult cellResult) {
+            spawnPointTracker.record(cellResult, System.currentTimeMillis());
+        }
+    };
+
+    private static class Area {
+
+        final double latitude;
+        final double longitude;
+        final double radiusMeters;
+
+        Area(double latitude, double longitude, double radiusMeters) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.radiusMeters = radiusMeters;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.pokegoapi.api.PokemonGo;
+import com.pokegoapi.auth.PtcCredentialProvider;
+import com.pokegoapi.exceptions.LoginFailedException;
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Logs in to Pokemon Go with a Pokemon Trainer Club account
+ */
+public class PtcSessionFactory implements MapSessionFactory {
+
+    private final String username;
+    private final String password;
+
+    public PtcSessionFactory(String username, String password) {
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public MapSession login() throws LoginFailedException, RemoteServerException {
+        OkHttpClient okHttpClient = new OkHttpClient();
+        PokemonGo pokemonGo = new PokemonGo(new PtcCredentialProvider(okHttpClient, username, password), okHttpClient);
+        return new PokemonGoSession(pokemonGo, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,193 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Subscription;
+
+/**
+ * Paces every map request made by the scanner. A request needs a permit from a global token
+ * bucket, from the bucket of the account making it and from the bucket of its session. When the
+ * server pushes back the request is retried with jittered exponential backoff, and all requests
+ * of the same account hold off for the backoff delay so the account slows down instead of every
+ * worker hitting the server again. Other accounts carry on at full speed.
+ */
+public class RequestGovernor {
+
+    // Longest a cooling down request sleeps before checking whether its scan was cancelled
+    private static final long CANCELLATION_CHECK_INTERVAL_MS = 100;
+
+    private final ScanConfig config;
+    private final TokenBucket globalBucket;
+    private final Map<Object, TokenBucket> sessionBuckets = new WeakHashMap<>();
+    private final Map<Object, AccountState> accountStates = new WeakHashMap<>();
+    private final Random random = new Random();
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public RequestGovernor(ScanConfig config) {
+        this.config = config;
+        this.globalBucket = new TokenBucket(config.getRequestsPerSecond(), config.getRequestBurst());
+    }
+
+    /**
+     * Runs a request once permits are available, retrying it when the server pushes back
+     *
+     * @param account      Account making the request, each account is limited separately
+     * @param session      Session making the request, each session is limited separately
+     * @param cancellation Subscription of the scan, the request is given up once it is unsubscribed
+     * @return Result of the request, or null if it was cancelled before being made
+     */
+    public <T> T execute(Object account, Object session, Subscription cancellation, Callable<T> request)
+            throws Exception {
+        AccountState accountState = accountState(account);
+
+        for (int attempt = 0; ; attempt++) {
+            if (!waitForPermits(accountState, session, cancellation) || cancellation.isUnsubscribed()) {
+                return null;
+            }
+
+            try {
+                return request.call();
+            } catch (RemoteServerException e) {
+                if (attempt + 1 >= config.getMaxRequestAttempts()) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+
+                retries.incrementAndGet();
+                long backoffMs = backoffMs(attempt);
+                accountState.coolDown(System.currentTimeMillis() + backoffMs);
+            }
+        }
+    }
+
+    /**
+     * @return Number of requests currently waiting for a permit
+     */
+    public int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public int getPeakQueueDepth() {
+        return peakQueueDepth.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return Number of requests that still failed after every attempt
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public String toString() {
+        return "queueDepth=" + getQueueDepth()
+                + " peakQueueDepth=" + getPeakQueueDepth()
+                + " retries=" + getRetries()
+                + " failures=" + getFailures();
+    }
+
+    /**
+     * @return False if the scan was cancelled before the permits were taken
+     */
+    private boolean waitForPermits(AccountState accountState, Object session, Subscription cancellation)
+            throws InterruptedException {
+        if (cancellation.isUnsubscribed()) {
+            return false;
+        }
+
+        int depth = queueDepth.incrementAndGet();
+        int peak;
+        do {
+            peak = peakQueueDepth.get();
+        } while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth));
+
+        try {
+            // A cooldown can last as long as the maximum backoff, so it is slept off in steps
+            long cooldownMs;
+            while ((cooldownMs = accountState.cooldownUntilMs - System.currentTimeMillis()) > 0) {
+                if (cancellation.isUnsubscribed()) {
+                    return false;
+                }
+                Thread.sleep(Math.min(cooldownMs, CANCELLATION_CHECK_INTERVAL_MS));
+            }
+
+            // Taking permits for a cancelled scan would slow down the scan that replaced it
+            if (cancellation.isUnsubscribed()) {
+                return false;
+            }
+
+            sessionBucket(session).acquire();
+            accountState.bucket.acquire();
+            globalBucket.acquire();
+            return true;
+        } finally {
+            queueDepth.decrementAndGet();
+        }
+    }
+
+    private TokenBucket sessionBucket(Object session) {
+        synchronized (sessionBuckets) {
+            TokenBucket bucket = sessionBuckets.get(session);
+            if (bucket == null) {
+                bucket = new TokenBucket(config.getSessionRequestsPerSecond(), config.getSessionRequestBurst());
+                sessionBuckets.put(session, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    private AccountState accountState(Object account) {
+        synchronized (accountStates) {
+            AccountState state = accountStates.get(account);
+            if (state == null) {
+                state = new AccountState(new TokenBucket(config.getAccountRequestsPerSecond(),
+                        config.getAccountRequestBurst()));
+                accountStates.put(account, state);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter, between half and the full delay of the attempt
+     */
+    private long backoffMs(int attempt) {
+        long delayMs = Math.min(config.getMaxBackoffMs(), config.getInitialBackoffMs() << Math.min(attempt, 20));
+        double jitter;
+        synchronized (random) {
+            jitter = random.nextDouble();
+        }
+        return delayMs / 2 + (long) (delayMs / 2 * jitter);
+    }
+
+    private static class AccountState {
+
+        final TokenBucket bucket;
+
+        // Requests of the account wait until this time after the server pushed back
+        volatile long cooldownUntilMs;
+
+        AccountState(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        synchronized void coolDown(long untilMs) {
+            cooldownUntilMs = Math.max(cooldownUntilMs, untilMs);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.anthonyng.pokemongomap.scan;
+
+/**
+ * An account the scanner can make requests with. Every account has its own pool of sessions and
+ * its own request budget, so adding accounts adds throughput. An account that keeps failing is
+ * left out of new scans for a while, backing off longer after every failure in a row.
+ */
+public class ScanAccount {
+
+    private final String name;
+    private final SessionPool sessionPool;
+
+    private int consecutiveFailures;
+    private long unavailableUntilMs;
+
+    /**
+     * @param name Name shown in logs, such as the username
+     */
+    public ScanAccount(String name, SessionPool sessionPool) {
+        this.name = name;
+        this.sessionPool = sessionPool;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public SessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    public synchronized boolean isAvailable(long nowMs) {
+        return nowMs >= unavailableUntilMs;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Takes the account out of new scans for a backoff that doubles with every failure in a row
+     */
+    synchronized void onFailure(long nowMs, long initialBackoffMs, long maxBackoffMs) {
+        long backoffMs = Math.min(maxBackoffMs, initialBackoffMs << Math.min(consecutiveFailures, 20));
+        consecutiveFailures++;
+        unavailableUntilMs = Math.max(unavailableUntilMs, nowMs + backoffMs);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
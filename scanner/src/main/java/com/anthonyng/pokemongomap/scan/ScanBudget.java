@@ -0,0 +1,99 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how much a background scan may do. Requests that actually reach the server are counted
+ * per hour, so cells answered from the cache cost nothing, and scanning stops when the battery
+ * runs low. The charge drawn is tracked so scans can be compared by the cells scanned per mAh.
+ *
+ * The charge comes from the battery's charge counter, which measures the drain of the whole
+ * device and not just of scanning. Cells per mAh are only comparable between runs made under
+ * similar conditions, such as with the screen off and nothing else running.
+ */
+public class ScanBudget {
+
+    private static final long WINDOW_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final int maxRequestsPerHour;
+    private final int minBatteryPercent;
+
+    private long windowStartMs = -1;
+    private int windowRequests;
+
+    private long cellsScanned;
+    private long initialChargeMicroAmpHours = -1;
+    private long lastChargeMicroAmpHours = -1;
+
+    public ScanBudget(int maxRequestsPerHour, int minBatteryPercent) {
+        this.maxRequestsPerHour = maxRequestsPerHour;
+        this.minBatteryPercent = minBatteryPercent;
+    }
+
+    /**
+     * @param batteryPercent Current battery level, or -1 if unknown
+     * @param charging       True if the device is charging, the battery level is not checked then
+     * @return Number of requests that may still be made this hour
+     */
+    public synchronized int available(long nowMs, int batteryPercent, boolean charging) {
+        if (!charging && batteryPercent >= 0 && batteryPercent < minBatteryPercent) {
+            return 0;
+        }
+
+        rollWindow(nowMs);
+        return Math.max(0, maxRequestsPerHour - windowRequests);
+    }
+
+    /**
+     * Charges requests that were made to the budget, retries included
+     */
+    public synchronized void onRequestsMade(int requests, long nowMs) {
+        rollWindow(nowMs);
+        windowRequests += requests;
+    }
+
+    public synchronized void onCellsScanned(int cells) {
+        cellsScanned += cells;
+    }
+
+    /**
+     * Records a reading of the battery charge counter. The first reading is the baseline the
+     * charge drawn is measured from.
+     */
+    public synchronized void onChargeMeasured(long chargeMicroAmpHours) {
+        if (initialChargeMicroAmpHours == -1) {
+            initialChargeMicroAmpHours = chargeMicroAmpHours;
+        }
+        lastChargeMicroAmpHours = chargeMicroAmpHours;
+    }
+
+    public synchronized long getCellsScanned() {
+        return cellsScanned;
+    }
+
+    /**
+     * @return Cells scanned per mAh the device drew since the first charge reading, or -1 if
+     * nothing measurable was drawn yet
+     */
+    public synchronized double getCellsPerMilliAmpHour() {
+        long drawnMicroAmpHours = initialChargeMicroAmpHours - lastChargeMicroAmpHours;
+        if (initialChargeMicroAmpHours == -1 || drawnMicroAmpHours <= 0) {
+            return -1;
+        }
+        return cellsScanned * 1000.0 / drawnMicroAmpHours;
+    }
+
+    private void rollWindow(long nowMs) {
+        if (windowStartMs == -1 || nowMs - windowStartMs >= WINDOW_MS) {
+            windowStartMs = nowMs;
+            windowRequests = 0;
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "cellsScanned=" + cellsScanned
+                + " requestsThisHour=" + windowRequests + "/" + maxRequestsPerHour
+                + " cellsPerMilliAmpHour=" + getCellsPerMilliAmpHour();
+    }
+}
@@ -0,0 +1,54 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.geo.HexGrid;
+import com.anthonyng.pokemongomap.geo.HexLattice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single location that is scanned for pokemon, identified by its cell on a {@link HexLattice}
+ */
+public class ScanCell {
+
+    private final long key;
+    private final double latitude;
+    private final double longitude;
+
+    public ScanCell(long key, double latitude, double longitude) {
+        this.key = key;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Creates the cells of a hexagonal grid around the lattice cell nearest to a location
+     *
+     * @param rings Number of rings, where the center cell is the first ring
+     */
+    public static List<ScanCell> around(HexLattice lattice, double latitude, double longitude, int rings) {
+        long[] keys = new long[HexGrid.cellCount(rings)];
+        int count = lattice.cellsAround(latitude, longitude, rings, keys, 0);
+        return fromKeys(lattice, keys, count);
+    }
+
+    public static List<ScanCell> fromKeys(HexLattice lattice, long[] keys, int count) {
+        List<ScanCell> cells = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cells.add(new ScanCell(keys[i], lattice.latitudeOf(keys[i]), lattice.longitudeOf(keys[i])));
+        }
+        return cells;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+}
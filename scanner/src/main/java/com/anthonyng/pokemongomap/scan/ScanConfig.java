@@ -0,0 +1,306 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settings that control how a scan is carried out
+ */
+public class ScanConfig {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_MAX_CELLS_PER_SCAN = 500;
+    public static final long DEFAULT_CACHE_TIME_TO_LIVE_MS = TimeUnit.MINUTES.toMillis(3);
+    public static final int DEFAULT_CACHE_MAX_CELLS = 4000;
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+    public static final int DEFAULT_REQUEST_BURST = 10;
+    public static final double DEFAULT_SESSION_REQUESTS_PER_SECOND = 2;
+    public static final int DEFAULT_SESSION_REQUEST_BURST = 2;
+    public static final double DEFAULT_ACCOUNT_REQUESTS_PER_SECOND = 5;
+    public static final int DEFAULT_ACCOUNT_REQUEST_BURST = 5;
+    public static final int DEFAULT_MAX_REQUEST_ATTEMPTS = 4;
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 500;
+    public static final long DEFAULT_MAX_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_BACKGROUND_BURST_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+    public static final double DEFAULT_BACKGROUND_SCAN_RADIUS_METERS = 500;
+    // As long as a pokemon stays, so only spawns that were missed entirely wait a full interval
+    public static final long DEFAULT_BACKGROUND_RESCAN_INTERVAL_MS = TimeUnit.MINUTES.toMillis(15);
+    public static final int DEFAULT_BACKGROUND_REQUESTS_PER_HOUR = 600;
+    public static final int DEFAULT_BACKGROUND_MIN_BATTERY_PERCENT = 20;
+
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int maxCellsPerScan = DEFAULT_MAX_CELLS_PER_SCAN;
+    private long cacheTimeToLiveMs = DEFAULT_CACHE_TIME_TO_LIVE_MS;
+    private int cacheMaxCells = DEFAULT_CACHE_MAX_CELLS;
+    private double requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
+    private int requestBurst = DEFAULT_REQUEST_BURST;
+    private double sessionRequestsPerSecond = DEFAULT_SESSION_REQUESTS_PER_SECOND;
+    private int sessionRequestBurst = DEFAULT_SESSION_REQUEST_BURST;
+    private double accountRequestsPerSecond = DEFAULT_ACCOUNT_REQUESTS_PER_SECOND;
+    private int accountRequestBurst = DEFAULT_ACCOUNT_REQUEST_BURST;
+    private int maxRequestAttempts = DEFAULT_MAX_REQUEST_ATTEMPTS;
+    private long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+    private long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+    private long backgroundBurstIntervalMs = DEFAULT_BACKGROUND_BURST_INTERVAL_MS;
+    private double backgroundScanRadiusMeters = DEFAULT_BACKGROUND_SCAN_RADIUS_METERS;
+    private long backgroundRescanIntervalMs = DEFAULT_BACKGROUND_RESCAN_INTERVAL_MS;
+    private int backgroundRequestsPerHour = DEFAULT_BACKGROUND_REQUESTS_PER_HOUR;
+    private int backgroundMinBatteryPercent = DEFAULT_BACKGROUND_MIN_BATTERY_PERCENT;
+
+    public static ScanConfig create() {
+        return new ScanConfig();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of cells that are fetched at the same time by each account
+     *
+     * @param parallelism Number of workers, at least 1
+     */
+    public ScanConfig setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getMaxCellsPerScan() {
+        return maxCellsPerScan;
+    }
+
+    /**
+     * Sets the maximum number of cells a single scan may fetch. Cells beyond the cap are dropped
+     * and counted in the scan metrics. Cached cells do not count towards the cap, and a cell can
+     * take up to the maximum number of attempts in requests.
+     *
+     * @param maxCellsPerScan Cell cap, at least 1
+     */
+    public ScanConfig setMaxCellsPerScan(int maxCellsPerScan) {
+        if (maxCellsPerScan < 1) {
+            throw new IllegalArgumentException("maxCellsPerScan must be at least 1");
+        }
+
+        this.maxCellsPerScan = maxCellsPerScan;
+        return this;
+    }
+
+    public long getCacheTimeToLiveMs() {
+        return cacheTimeToLiveMs;
+    }
+
+    /**
+     * Sets how long the result of a cell is reused before the cell is scanned again
+     *
+     * @param cacheTimeToLiveMs Time to live, 0 turns caching off
+     */
+    public ScanConfig setCacheTimeToLiveMs(long cacheTimeToLiveMs) {
+        if (cacheTimeToLiveMs < 0) {
+            throw new IllegalArgumentException("cacheTimeToLiveMs must not be negative");
+        }
+
+        this.cacheTimeToLiveMs = cacheTimeToLiveMs;
+        return this;
+    }
+
+    public int getCacheMaxCells() {
+        return cacheMaxCells;
+    }
+
+    /**
+     * Sets the number of cell results kept, the least recently used are dropped first
+     *
+     * @param cacheMaxCells Maximum number of cells, at least 1
+     */
+    public ScanConfig setCacheMaxCells(int cacheMaxCells) {
+        if (cacheMaxCells < 1) {
+            throw new IllegalArgumentException("cacheMaxCells must be at least 1");
+        }
+
+        this.cacheMaxCells = cacheMaxCells;
+        return this;
+    }
+
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    public int getRequestBurst() {
+        return requestBurst;
+    }
+
+    /**
+     * Sets the rate of map requests across all sessions
+     *
+     * @param requestsPerSecond Sustained rate
+     * @param burst             Number of requests that may be made at once after being idle
+     */
+    public ScanConfig setRequestRate(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive and burst at least 1");
+        }
+
+        this.requestsPerSecond = requestsPerSecond;
+        this.requestBurst = burst;
+        return this;
+    }
+
+    public double getSessionRequestsPerSecond() {
+        return sessionRequestsPerSecond;
+    }
+
+    public int getSessionRequestBurst() {
+        return sessionRequestBurst;
+    }
+
+    /**
+     * Sets the rate of map requests made by a single session
+     *
+     * @param requestsPerSecond Sustained rate
+     * @param burst             Number of requests that may be made at once after being idle
+     */
+    public ScanConfig setSessionRequestRate(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive and burst at least 1");
+        }
+
+        this.sessionRequestsPerSecond = requestsPerSecond;
+        this.sessionRequestBurst = burst;
+        return this;
+    }
+
+    public double getAccountRequestsPerSecond() {
+        return accountRequestsPerSecond;
+    }
+
+    public int getAccountRequestBurst() {
+        return accountRequestBurst;
+    }
+
+    /**
+     * Sets the rate of map requests made by all sessions of a single account
+     *
+     * @param requestsPerSecond Sustained rate
+     * @param burst             Number of requests that may be made at once after being idle
+     */
+    public ScanConfig setAccountRequestRate(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive and burst at least 1");
+        }
+
+        this.accountRequestsPerSecond = requestsPerSecond;
+        this.accountRequestBurst = burst;
+        return this;
+    }
+
+    public int getMaxRequestAttempts() {
+        return maxRequestAttempts;
+    }
+
+    /**
+     * Sets how many times a request is tried when the server pushes back
+     *
+     * @param maxRequestAttempts Number of attempts, at least 1
+     */
+    public ScanConfig setMaxRequestAttempts(int maxRequestAttempts) {
+        if (maxRequestAttempts < 1) {
+            throw new IllegalArgumentException("maxRequestAttempts must be at least 1");
+        }
+
+        this.maxRequestAttempts = maxRequestAttempts;
+        return this;
+    }
+
+    public long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    /**
+     * Sets the delay before retrying a request the server pushed back on. The delay doubles with
+     * every attempt up to the maximum.
+     */
+    public ScanConfig setBackoff(long initialBackoffMs, long maxBackoffMs) {
+        if (initialBackoffMs < 1 || maxBackoffMs < initialBackoffMs) {
+            throw new IllegalArgumentException("initialBackoffMs must be positive and not above maxBackoffMs");
+        }
+
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        return this;
+    }
+
+    public long getBackgroundBurstIntervalMs() {
+        return backgroundBurstIntervalMs;
+    }
+
+    public double getBackgroundScanRadiusMeters() {
+        return backgroundScanRadiusMeters;
+    }
+
+    /**
+     * Sets how the background scan covers the area around the user. The cells of the area that
+     * are due are requested together in a burst, and the radio can sleep between bursts.
+     *
+     * @param burstIntervalMs Time between the start of two bursts
+     * @param radiusMeters    Distance from the user to the edge of the area scanned
+     */
+    public ScanConfig setBackgroundBursts(long burstIntervalMs, double radiusMeters) {
+        if (burstIntervalMs < 1 || radiusMeters <= 0) {
+            throw new IllegalArgumentException("burstIntervalMs and radiusMeters must be positive");
+        }
+
+        this.backgroundBurstIntervalMs = burstIntervalMs;
+        this.backgroundScanRadiusMeters = radiusMeters;
+        return this;
+    }
+
+    public long getBackgroundRescanIntervalMs() {
+        return backgroundRescanIntervalMs;
+    }
+
+    /**
+     * Sets how long a cell scanned in the background is left alone. Cells with a predicted spawn
+     * are scanned when it is due regardless.
+     *
+     * @param rescanIntervalMs Age after which a background burst scans a cell again
+     */
+    public ScanConfig setBackgroundRescanInterval(long rescanIntervalMs) {
+        if (rescanIntervalMs < 1) {
+            throw new IllegalArgumentException("rescanIntervalMs must be positive");
+        }
+
+        this.backgroundRescanIntervalMs = rescanIntervalMs;
+        return this;
+    }
+
+    public int getBackgroundRequestsPerHour() {
+        return backgroundRequestsPerHour;
+    }
+
+    public int getBackgroundMinBatteryPercent() {
+        return backgroundMinBatteryPercent;
+    }
+
+    /**
+     * Sets what the background scan may spend
+     *
+     * @param requestsPerHour   Requests allowed each hour
+     * @param minBatteryPercent Battery level below which scanning pauses unless charging
+     */
+    public ScanConfig setBackgroundBudget(int requestsPerHour, int minBatteryPercent) {
+        if (requestsPerHour < 1 || minBatteryPercent < 0 || minBatteryPercent > 100) {
+            throw new IllegalArgumentException("requestsPerHour must be positive and minBatteryPercent a percentage");
+        }
+
+        this.backgroundRequestsPerHour = requestsPerHour;
+        this.backgroundMinBatteryPercent = minBatteryPercent;
+        return this;
+    }
+}
@@ -0,0 +1,98 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters describing the work done by the scanner since it was created
+ */
+public class ScanMetrics {
+
+    private final AtomicInteger workerThreads = new AtomicInteger();
+    private final AtomicInteger activeFetches = new AtomicInteger();
+    private final AtomicInteger peakActiveFetches = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong wastedRequests = new AtomicLong();
+    private final AtomicLong cancelledCells = new AtomicLong();
+    private final AtomicLong droppedCells = new AtomicLong();
+
+    void onWorkerThreadCreated() {
+        workerThreads.incrementAndGet();
+    }
+
+    void onFetchStarted() {
+        int active = activeFetches.incrementAndGet();
+
+        int peak;
+        do {
+            peak = peakActiveFetches.get();
+        } while (active > peak && !peakActiveFetches.compareAndSet(peak, active));
+    }
+
+    void onFetchFinished() {
+        activeFetches.decrementAndGet();
+    }
+
+    void onRequest() {
+        requests.incrementAndGet();
+    }
+
+    /**
+     * A request completed after its scan was cancelled, so its result was thrown away
+     */
+    void onWastedRequest() {
+        wastedRequests.incrementAndGet();
+    }
+
+    /**
+     * A cell was skipped before making a request because its scan was cancelled
+     */
+    void onCellCancelled() {
+        cancelledCells.incrementAndGet();
+    }
+
+    void onCellsCancelled(int count) {
+        cancelledCells.addAndGet(count);
+    }
+
+    /**
+     * Cells were left out of a scan because it asked for more cells than the cap allows
+     */
+    void onCellsDropped(int count) {
+        droppedCells.addAndGet(count);
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads.get();
+    }
+
+    public int getPeakActiveFetches() {
+        return peakActiveFetches.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getWastedRequests() {
+        return wastedRequests.get();
+    }
+
+    public long getCancelledCells() {
+        return cancelledCells.get();
+    }
+
+    public long getDroppedCells() {
+        return droppedCells.get();
+    }
+
+    @Override
+    public String toString() {
+        return "threads=" + getWorkerThreads()
+                + " peakActiveFetches=" + getPeakActiveFetches()
+                + " requests=" + getRequests()
+                + " wastedRequests=" + getWastedRequests()
+                + " cancelledCells=" + getCancelledCells()
+                + " droppedCells=" + getDroppedCells();
+    }
+}
@@ -0,0 +1,63 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recent scan results keyed by lattice cell. Entries older than the time to live are treated as
+ * missing, and the least recently used entries are dropped once the cache is full.
+ */
+public class ScanResultCache {
+
+    private final long timeToLiveMs;
+    private final LinkedHashMap<Long, Entry> entries;
+
+    public ScanResultCache(long timeToLiveMs, final int maxCells) {
+        this.timeToLiveMs = timeToLiveMs;
+        this.entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxCells;
+            }
+        };
+    }
+
+    /**
+     * @return Sightings of the cell if it was scanned within the time to live, otherwise null
+     */
+    public synchronized List<Sighting> get(long cellKey, long nowMs) {
+        Entry entry = entries.get(cellKey);
+        if (entry == null) {
+            return null;
+        }
+
+        if (nowMs - entry.scanTimeMs >= timeToLiveMs) {
+            entries.remove(cellKey);
+            return null;
+        }
+
+        return entry.sightings;
+    }
+
+    public synchronized void put(long cellKey, List<Sighting> sightings, long scanTimeMs) {
+        entries.put(cellKey, new Entry(sightings, scanTimeMs));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        final List<Sighting> sightings;
+        final long scanTimeMs;
+
+        Entry(List<Sighting> sightings, long scanTimeMs) {
+            this.sightings = sightings;
+            this.scanTimeMs = scanTimeMs;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.anthonyng.pokemongomap.scan;
+
+/**
+ * Tracks how long a scan takes to show its first result and to complete
+ */
+public class ScanTimings {
+
+    private final long startTimeMs;
+    private long firstResultTimeMs = -1;
+    private long completedTimeMs = -1;
+
+    public ScanTimings() {
+        startTimeMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Records that a result was shown. Only the first call has an effect.
+     */
+    public void markResult() {
+        if (firstResultTimeMs == -1) {
+            firstResultTimeMs = System.currentTimeMillis();
+        }
+    }
+
+    public void markCompleted() {
+        completedTimeMs = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Milliseconds from the start of the scan to the first result, or -1 if nothing was found
+     */
+    public long getTimeToFirstResultMs() {
+        return firstResultTimeMs == -1 ? -1 : firstResultTimeMs - startTimeMs;
+    }
+
+    /**
+     * @return Milliseconds from the start of the scan until it completed, or -1 if still running
+     */
+    public long getTotalTimeMs() {
+        return completedTimeMs == -1 ? -1 : completedTimeMs - startTimeMs;
+    }
+}
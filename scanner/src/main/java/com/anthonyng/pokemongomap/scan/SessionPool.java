@@ -0,0 +1,197 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscription;
+
+/**
+ * Keeps a set of logged in map sessions that are lent out to scans. Sessions are logged
+ * in again in the background once they get close to expiring, so scans only wait for a login
+ * when the pool is cold.
+ */
+public class SessionPool {
+
+    // Pokemon Trainer Club tokens are valid for two hours
+    public static final long DEFAULT_SESSION_LIFETIME_MS = TimeUnit.HOURS.toMillis(2);
+    public static final long DEFAULT_REFRESH_MARGIN_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final long WAIT_INTERVAL_MS = 100;
+
+    private final MapSessionFactory sessionFactory;
+    private final int maxSessions;
+    private final long sessionLifetimeMs;
+    private final long refreshMarginMs;
+    private final PipelineMetrics pipelineMetrics;
+
+    private final BlockingQueue<MapSession> idleSessions = new LinkedBlockingQueue<>();
+    private final AtomicInteger sessionCount = new AtomicInteger();
+    private final ExecutorService loginExecutor = Executors.newSingleThreadExecutor();
+
+    public SessionPool(MapSessionFactory sessionFactory, int maxSessions) {
+        this(sessionFactory, maxSessions, DEFAULT_SESSION_LIFETIME_MS, DEFAULT_REFRESH_MARGIN_MS);
+    }
+
+    public SessionPool(MapSessionFactory sessionFactory, int maxSessions, PipelineMetrics pipelineMetrics) {
+        this(sessionFactory, maxSessions, DEFAULT_SESSION_LIFETIME_MS, DEFAULT_REFRESH_MARGIN_MS, pipelineMetrics);
+    }
+
+    public SessionPool(MapSessionFactory sessionFactory, int maxSessions,
+                       long sessionLifetimeMs, long refreshMarginMs) {
+        this(sessionFactory, maxSessions, sessionLifetimeMs, refreshMarginMs, new PipelineMetrics());
+    }
+
+    /**
+     * @param pipelineMetrics Receives the time taken by every login
+     */
+    public SessionPool(MapSessionFactory sessionFactory, int maxSessions,
+                       long sessionLifetimeMs, long refreshMarginMs, PipelineMetrics pipelineMetrics) {
+        this.sessionFactory = sessionFactory;
+        this.pipelineMetrics = pipelineMetrics;
+        this.maxSessions = maxSessions;
+        this.sessionLifetimeMs = sessionLifetimeMs;
+        this.refreshMarginMs = refreshMarginMs;
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * @return Number of logged in sessions waiting to be lent out
+     */
+    public int getIdleCount() {
+        return idleSessions.size();
+    }
+
+    /**
+     * Logs in every session of the pool in the background so the first scan does not have to
+     */
+    public void warmUp() {
+        while (reserveSession()) {
+            loginExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        idleSessions.offer(login());
+                    } catch (Exception e) {
+                        // Let the next acquire log in instead
+                        sessionCount.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Borrows a logged in session, waiting while all sessions are in use. Every session that is
+     * acquired must be handed back with {@link #release(MapSession)}.
+     *
+     * A waiting caller takes over the slot of a session whose background login failed, so when
+     * the server is down the login error reaches the caller instead of leaving it waiting.
+     *
+     * @param cancellation Subscription of the scan, waiting is given up once it is unsubscribed
+     * @return Session, or null if the scan was cancelled while waiting
+     */
+    public MapSession acquire(Subscription cancellation) throws Exception {
+        MapSession session = idleSessions.poll();
+
+        while (session == null) {
+            if (reserveSession()) {
+                return loginReserved();
+            }
+
+            if (cancellation.isUnsubscribed()) {
+                return null;
+            }
+
+            // Wake up now and then to notice failed logins and cancellation
+            session = idleSessions.poll(WAIT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        if (session.getAgeMs(System.currentTimeMillis()) >= sessionLifetimeMs) {
+            // Expired before it could be refreshed, log in again in place
+            return loginReserved();
+        }
+
+        return session;
+    }
+
+    /**
+     * Hands a session back to the pool. Sessions that are close to expiring are logged in again
+     * in the background before they are lent out again.
+     */
+    public void release(final MapSession session) {
+        if (session.getAgeMs(System.currentTimeMillis()) < sessionLifetimeMs - refreshMarginMs) {
+            idleSessions.offer(session);
+            return;
+        }
+
+        loginExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    idleSessions.offer(login());
+                } catch (Exception e) {
+                    // Keep using the old session while it is still valid
+                    if (session.getAgeMs(System.currentTimeMillis()) < sessionLifetimeMs) {
+                        idleSessions.offer(session);
+                    } else {
+                        sessionCount.decrementAndGet();
+                    }
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        loginExecutor.shutdownNow();
+    }
+
+    private boolean reserveSession() {
+        while (true) {
+            int count = sessionCount.get();
+            if (count >= maxSessions) {
+                return false;
+            }
+
+            if (sessionCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Logs in a session whose slot has already been reserved, giving the slot up on failure
+     */
+    private MapSession loginReserved() throws Exception {
+        boolean loggedIn = false;
+        try {
+            MapSession session = login();
+            loggedIn = true;
+            return session;
+        } finally {
+            if (!loggedIn) {
+                sessionCount.decrementAndGet();
+            }
+        }
+    }
+
+    private MapSession login() throws Exception {
+        long startNanos = pipelineMetrics.start();
+        try {
+            return sessionFactory.login();
+        } catch (Exception e) {
+            pipelineMetrics.increment(PipelineMetrics.Counter.ERRORS, 1);
+            throw e;
+        } finally {
+            pipelineMetrics.stop(PipelineMetrics.Stage.LOGIN, startNanos);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Learns when each spawn point spawns. A spawn point spawns once an hour at the same second of
+ * the hour and the pokemon stays for a fixed time, so the expiration of a single sighting gives
+ * away the schedule of its spawn point. Sightings seen again at the same second of the hour
+ * confirm the schedule, a different second replaces it.
+ */
+public class SpawnPointTracker {
+
+    // How long a spawned pokemon stays
+    public static final long SPAWN_DURATION_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    // Differences within this are measurement noise and confirm the known schedule
+    private static final long SCHEDULE_TOLERANCE_MS = TimeUnit.SECONDS.toMillis(60);
+    // Pokemon may show up a little after their spawn time
+    private static final long SPAWN_SETTLE_MS = TimeUnit.SECONDS.toMillis(10);
+    private static final int MAX_TRACKED_SPAWN_POINTS = 20000;
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    private final LinkedHashMap<String, SpawnPoint> spawnPoints;
+    // Last time each cell with a known spawn point was fetched
+    private final HashMap<Long, Long> cellScanTimes = new HashMap<>();
+
+    public SpawnPointTracker() {
+        spawnPoints = new LinkedHashMap<String, SpawnPoint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SpawnPoint> eldest) {
+                if (size() > MAX_TRACKED_SPAWN_POINTS) {
+                    cellScanTimes.remove(eldest.getValue().cell.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Learns from a fetched cell. Results answered from the cache should not be recorded as they
+     * do not tell when the cell was scanned.
+     */
+    public synchronized void record(CellResult cellResult, long scanTimeMs) {
+        ScanCell cell = cellResult.getCell();
+
+        for (Sighting sighting : cellResult.getAllSightings()) {
+            if (!sighting.isExpirationKnown()) {
+                continue;
+            }
+
+            long spawnOffsetMs = floorMod(sighting.getExpirationTimestampMs() - SPAWN_DURATION_MS, HOUR_MS);
+            SpawnPoint spawnPoint = spawnPoints.get(sighting.getSpawnPointId());
+            if (spawnPoint == null) {
+                spawnPoint = new SpawnPoint(cell, sighting.getLatitude(), sighting.getLongitude());
+                spawnPoints.put(sighting.getSpawnPointId(), spawnPoint);
+            }
+
+            if (spawnPoint.confirmations > 0
+                    && hourDistance(spawnPoint.spawnOffsetMs, spawnOffsetMs) <= SCHEDULE_TOLERANCE_MS) {
+                if (spawnPoint.lastEncounterId != sighting.getEncounterId()) {
+                    spawnPoint.confirmations++;
+                }
+            } else {
+                spawnPoint.spawnOffsetMs = spawnOffsetMs;
+                spawnPoint.confirmations = 1;
+            }
+            spawnPoint.lastEncounterId = sighting.getEncounterId();
+        }
+
+        if (cellScanTimes.containsKey(cell.getKey()) || !cellResult.getAllSightings().isEmpty()) {
+            cellScanTimes.put(cell.getKey(), scanTimeMs);
+        }
+    }
+
+    /**
+     * Finds the cells worth scanning again because one of their spawn points spawned after the
+     * cell was last scanned and the pokemon is still there
+     *
+     * @param radiusMeters Only spawn points this close to the given location are considered
+     * @return Cells to scan, nearest first
+     */
+    public synchronized List<ScanCell> dueCells(long nowMs, double latitude, double longitude, double radiusMeters) {
+        final HashMap<Long, Double> distances = new HashMap<>();
+        List<ScanCell> cells = new ArrayList<>();
+        double longitudeScale = Math.cos(Math.toRadians(latitude));
+
+        for (SpawnPoint spawnPoint : spawnPoints.values()) {
+            ScanCell cell = spawnPoint.cell;
+            if (distances.containsKey(cell.getKey())) {
+                continue;
+            }
+
+            double north = (spawnPoint.latitude - latitude) * METERS_PER_DEGREE;
+            double east = (spawnPoint.longitude - longitude) * METERS_PER_DEGREE * longitudeScale;
+            double distance = Math.sqrt(north * north + east * east);
+            if (distance > radiusMeters) {
+                continue;
+            }
+
+            long spawnTimeMs = lastSpawnTimeMs(spawnPoint, nowMs);
+            Long cellScanTimeMs = cellScanTimes.get(cell.getKey());
+            boolean settled = spawnTimeMs + SPAWN_SETTLE_MS <= nowMs;
+            boolean active = spawnTimeMs + SPAWN_DURATION_MS > nowMs;
+            boolean missed = cellScanTimeMs == null || cellScanTimeMs < spawnTimeMs + SPAWN_SETTLE_MS;
+            if (settled && active && missed) {
+                distances.put(cell.getKey(), distance);
+                cells.add(cell);
+            }
+        }
+
+        Collections.sort(cells, new Comparator<ScanCell>() {
+            @Override
+            public int compare(ScanCell a, ScanCell b) {
+                return Double.compare(distances.get(a.getKey()), distances.get(b.getKey()));
+            }
+        });
+        return cells;
+    }
+
+    public synchronized int size() {
+        return spawnPoints.size();
+    }
+
+    /**
+     * @return Most recent spawn of the spawn point at or before the given time
+     */
+    private static long lastSpawnTimeMs(SpawnPoint spawnPoint, long nowMs) {
+        long spawnTimeMs = nowMs - floorMod(nowMs, HOUR_MS) + spawnPoint.spawnOffsetMs;
+        return spawnTimeMs > nowMs ? spawnTimeMs - HOUR_MS : spawnTimeMs;
+    }
+
+    private static long hourDistance(long a, long b) {
+        long difference = Math.abs(a - b);
+        return Math.min(difference, HOUR_MS - difference);
+    }
+
+    private static long floorMod(long value, long divisor) {
+        long mod = value % divisor;
+        return mod < 0 ? mod + divisor : mod;
+    }
+
+    private static class SpawnPoint {
+
+        final ScanCell cell;
+        final double latitude;
+        final double longitude;
+        long spawnOffsetMs;
+        int confirmations;
+        long lastEncounterId;
+
+        SpawnPoint(ScanCell cell, double latitude, double longitude) {
+            this.cell = cell;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.anthonyng.pokemongomap.scan;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out permits at a steady rate while allowing short bursts. Callers that find the bucket
+ * empty reserve a future permit and wait for it outside the lock, so waiting callers are served
+ * in the order they arrived.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+
+    private double permits;
+    private long lastRefillNanos;
+
+    /**
+     * @param permitsPerSecond Sustained rate
+     * @param burst            Number of permits that can be taken at once after the bucket was idle
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1");
+        }
+
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.permits = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a permit, waiting until one is available
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a permit, possibly one that only becomes available in the future
+     *
+     * @return Nanoseconds to wait before the permit may be used
+     */
+    public synchronized long reserve() {
+        long nowNanos = System.nanoTime();
+        permits = Math.min(burst, permits + (nowNanos - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = nowNanos;
+
+        permits -= 1;
+        return permits >= 0 ? 0 : (long) (-permits / permitsPerNano);
+    }
+}
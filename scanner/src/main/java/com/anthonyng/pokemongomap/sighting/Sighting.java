@@ -0,0 +1,96 @@
+package com.anthonyng.pokemongomap.sighting;
+
+/**
+ * A pokemon seen at a spawn point. Two sightings are equal when they are the same encounter at
+ * the same spawn point.
+ */
+public class Sighting {
+
+    private final String spawnPointId;
+    private final long encounterId;
+    private final int pokemonNumber;
+    private final String pokemonName;
+    private final double latitude;
+    private final double longitude;
+    private final long expirationTimestampMs;
+    private final boolean expirationKnown;
+
+    public Sighting(String spawnPointId, long encounterId, int pokemonNumber, String pokemonName,
+                    double latitude, double longitude, long expirationTimestampMs) {
+        this(spawnPointId, encounterId, pokemonNumber, pokemonName, latitude, longitude,
+                expirationTimestampMs, true);
+    }
+
+    /**
+     * @param expirationKnown False if the server did not report an expiration and the given one is
+     *                        only an estimate
+     */
+    public Sighting(String spawnPointId, long encounterId, int pokemonNumber, String pokemonName,
+                    double latitude, double longitude, long expirationTimestampMs, boolean expirationKnown) {
+        this.spawnPointId = spawnPointId;
+        this.encounterId = encounterId;
+        this.pokemonNumber = pokemonNumber;
+        this.pokemonName = pokemonName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.expirationTimestampMs = expirationTimestampMs;
+        this.expirationKnown = expirationKnown;
+    }
+
+    public String getSpawnPointId() {
+        return spawnPointId;
+    }
+
+    public long getEncounterId() {
+        return encounterId;
+    }
+
+    public int getPokemonNumber() {
+        return pokemonNumber;
+    }
+
+    public String getPokemonName() {
+        return pokemonName;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public long getExpirationTimestampMs() {
+        return expirationTimestampMs;
+    }
+
+    /**
+     * @return False if the expiration is only an estimate
+     */
+    public boolean isExpirationKnown() {
+        return expirationKnown;
+    }
+
+    public boolean isExpired(long nowMs) {
+        return expirationTimestampMs <= nowMs;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Sighting)) {
+            return false;
+        }
+
+        Sighting other = (Sighting) o;
+        return encounterId == other.encounterId && spawnPointId.equals(other.spawnPointId);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * spawnPointId.hashCode() + (int) (encounterId ^ (encounterId >>> 32));
+    }
+}
@@ -0,0 +1,51 @@
+package com.anthonyng.pokemongomap.sighting;
+
+/**
+ * One or more sightings that are drawn as a single marker
+ */
+public class SightingCluster {
+
+    private final Object key;
+    private final Sighting firstSighting;
+    private double latitudeSum;
+    private double longitudeSum;
+    private int size;
+
+    SightingCluster(Object key, Sighting firstSighting) {
+        this.key = key;
+        this.firstSighting = firstSighting;
+    }
+
+    void add(Sighting sighting) {
+        latitudeSum += sighting.getLatitude();
+        longitudeSum += sighting.getLongitude();
+        size++;
+    }
+
+    /**
+     * @return The sighting itself for a single sighting, otherwise a key identifying the grid
+     * cell the cluster was built from
+     */
+    public Object getKey() {
+        return size == 1 ? firstSighting : key;
+    }
+
+    /**
+     * @return The only sighting of the cluster, or null if there is more than one
+     */
+    public Sighting getSighting() {
+        return size == 1 ? firstSighting : null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getLatitude() {
+        return latitudeSum / size;
+    }
+
+    public double getLongitude() {
+        return longitudeSum / size;
+    }
+}
@@ -0,0 +1,89 @@
+package com.anthonyng.pokemongomap.sighting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Groups sightings that would overlap on screen into clusters. Sightings are grouped by a grid
+ * whose cells cover a fixed number of pixels at the given zoom level.
+ */
+public class SightingClusterer {
+
+    // Map tiles are 256 pixels wide and the world doubles in size with each zoom level
+    private static final double TILE_PIXELS = 256;
+    private static final long GRID_MASK = 0x1FFFFFFFL;
+
+    private SightingClusterer() {
+    }
+
+    /**
+     * @param sightings   Sightings to group
+     * @param zoom        Zoom level of the map
+     * @param cellPixels  Size of a cluster cell on screen
+     * @param maxClusters Maximum number of clusters to return, the ones closest to the center are kept
+     */
+    public static List<SightingCluster> cluster(List<Sighting> sightings, int zoom, int cellPixels,
+                                                int maxClusters, double centerLatitude, double centerLongitude) {
+        double cellDegrees = cellPixels * 360 / (TILE_PIXELS * (1L << zoom));
+        HashMap<Long, SightingCluster> clusters = new HashMap<>();
+
+        for (int i = 0; i < sightings.size(); i++) {
+            Sighting sighting = sightings.get(i);
+            long row = (long) Math.floor(sighting.getLatitude() / cellDegrees);
+            long column = (long) Math.floor(sighting.getLongitude() / cellDegrees);
+            Long key = ((long) zoom << 58) | ((row & GRID_MASK) << 29) | (column & GRID_MASK);
+
+            SightingCluster cluster = clusters.get(key);
+            if (cluster == null) {
+                cluster = new SightingCluster(key, sighting);
+                clusters.put(key, cluster);
+            }
+            cluster.add(sighting);
+        }
+
+        return nearest(new ArrayList<>(clusters.values()), maxClusters, centerLatitude, centerLongitude);
+    }
+
+    /**
+     * Wraps every sighting in a cluster of its own, used when the map is zoomed in far enough that
+     * sightings no longer overlap
+     */
+    public static List<SightingCluster> single(List<Sighting> sightings, int maxClusters,
+                                               double centerLatitude, double centerLongitude) {
+        List<SightingCluster> clusters = new ArrayList<>(sightings.size());
+        for (int i = 0; i < sightings.size(); i++) {
+            Sighting sighting = sightings.get(i);
+            SightingCluster cluster = new SightingCluster(sighting, sighting);
+            cluster.add(sighting);
+            clusters.add(cluster);
+        }
+
+        return nearest(clusters, maxClusters, centerLatitude, centerLongitude);
+    }
+
+    private static List<SightingCluster> nearest(List<SightingCluster> clusters, int maxClusters,
+                                                 final double centerLatitude, final double centerLongitude) {
+        if (clusters.size() <= maxClusters) {
+            return clusters;
+        }
+
+        final double cosLatitude = Math.cos(Math.toRadians(centerLatitude));
+        Collections.sort(clusters, new Comparator<SightingCluster>() {
+            @Override
+            public int compare(SightingCluster lhs, SightingCluster rhs) {
+                return Double.compare(distanceSquared(lhs), distanceSquared(rhs));
+            }
+
+            private double distanceSquared(SightingCluster cluster) {
+                double dy = cluster.getLatitude() - centerLatitude;
+                double dx = (cluster.getLongitude() - centerLongitude) * cosLatitude;
+                return dx * dx + dy * dy;
+            }
+        });
+
+        return new ArrayList<>(clusters.subList(0, maxClusters));
+    }
+}
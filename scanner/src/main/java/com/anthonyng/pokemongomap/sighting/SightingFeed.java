@@ -0,0 +1,48 @@
+package com.anthonyng.pokemongomap.sighting;
+
+import rx.Observable;
+import rx.subjects.PublishSubject;
+import rx.subjects.SerializedSubject;
+import rx.subjects.Subject;
+
+/**
+ * Sightings shared by everything that scans and everything that shows them. New sightings are
+ * added to the store and announced to subscribers, so a scan running in the background reaches
+ * the map as soon as it is visible again.
+ */
+public class SightingFeed {
+
+    private final SightingStore sightingStore;
+    private final Subject<Sighting, Sighting> newSightings =
+            new SerializedSubject<>(PublishSubject.<Sighting>create());
+
+    public SightingFeed(SightingStore sightingStore) {
+        this.sightingStore = sightingStore;
+    }
+
+    /**
+     * Adds a sighting and announces it unless it is already known, can be called from any thread
+     *
+     * @return True if the sighting was new
+     */
+    public boolean publish(Sighting sighting) {
+        if (!sightingStore.add(sighting)) {
+            return false;
+        }
+
+        newSightings.onNext(sighting);
+        return true;
+    }
+
+    /**
+     * @return Observable emitting every sighting published after subscribing, on the publishing
+     * thread
+     */
+    public Observable<Sighting> newSightings() {
+        return newSightings;
+    }
+
+    public SightingStore getStore() {
+        return sightingStore;
+    }
+}
@@ -0,0 +1,16 @@
+package com.anthonyng.pokemongomap.sighting;
+
+/**
+ * Decides which sightings are shown to the user
+ */
+public interface SightingFilter {
+
+    SightingFilter ACCEPT_ALL = new SightingFilter() {
+        @Override
+        public boolean accept(Sighting sighting) {
+            return true;
+        }
+    };
+
+    boolean accept(Sighting sighting);
+}
@@ -0,0 +1,276 @@
+package com.anthonyng.pokemongomap.sighting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Holds the sightings that have not expired yet. Sightings are bucketed by a uniform
+ * latitude/longitude grid so area and nearest queries only look at nearby buckets, and every
+ * bucket tracks its earliest expiration so expired sightings can be removed without visiting
+ * buckets that have nothing to remove.
+ */
+public class SightingStore {
+
+    // Roughly a kilometer at the equator
+    public static final double DEFAULT_BUCKET_SIZE_DEGREES = 0.01;
+
+    // Past this many buckets it is cheaper to visit every bucket than to walk the range
+    private static final int MAX_BUCKETS_PER_QUERY = 4096;
+
+    private static final double METERS_PER_DEGREE = 111319.49;
+
+    private final double bucketSizeDegrees;
+    private final HashSet<Sighting> sightings = new HashSet<>();
+    private final HashMap<Long, Bucket> buckets = new HashMap<>();
+
+    public SightingStore() {
+        this(DEFAULT_BUCKET_SIZE_DEGREES);
+    }
+
+    public SightingStore(double bucketSizeDegrees) {
+        this.bucketSizeDegrees = bucketSizeDegrees;
+    }
+
+    /**
+     * Adds a sighting unless it is already in the store
+     *
+     * @return True if the sighting was added, false if it was a duplicate
+     */
+    public synchronized boolean add(Sighting sighting) {
+        if (!sightings.add(sighting)) {
+            return false;
+        }
+
+        long key = bucketKey(row(sighting.getLatitude()), column(sighting.getLongitude()));
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(key, bucket);
+        }
+        bucket.add(sighting);
+
+        return true;
+    }
+
+    public synchronized boolean contains(Sighting sighting) {
+        return sightings.contains(sighting);
+    }
+
+    public synchronized boolean remove(Sighting sighting) {
+        if (!sightings.remove(sighting)) {
+            return false;
+        }
+
+        long key = bucketKey(row(sighting.getLatitude()), column(sighting.getLongitude()));
+        Bucket bucket = buckets.get(key);
+        bucket.remove(sighting);
+        if (bucket.sightings.isEmpty()) {
+            buckets.remove(key);
+        }
+
+        return true;
+    }
+
+    public synchronized int size() {
+        return sightings.size();
+    }
+
+    /**
+     * Removes every sighting that expired at or before the given time
+     *
+     * @param nowMs   Current time
+     * @param removed List the removed sightings are added to, may be null
+     * @return Number of sightings removed
+     */
+    public synchronized int removeExpired(long nowMs, List<Sighting> removed) {
+        int removedCount = 0;
+
+        Iterator<Bucket> bucketIterator = buckets.values().iterator();
+        while (bucketIterator.hasNext()) {
+            Bucket bucket = bucketIterator.next();
+            if (bucket.earliestExpirationMs > nowMs) {
+                continue;
+            }
+
+            long earliestExpirationMs = Long.MAX_VALUE;
+            Iterator<Sighting> sightingIterator = bucket.sightings.iterator();
+            while (sightingIterator.hasNext()) {
+                Sighting sighting = sightingIterator.next();
+                if (sighting.isExpired(nowMs)) {
+                    sightingIterator.remove();
+                    sightings.remove(sighting);
+                    removedCount++;
+
+                    if (removed != null) {
+                        removed.add(sighting);
+                    }
+                } else {
+                    earliestExpirationMs = Math.min(earliestExpirationMs, sighting.getExpirationTimestampMs());
+                }
+            }
+
+            bucket.earliestExpirationMs = earliestExpirationMs;
+            if (bucket.sightings.isEmpty()) {
+                bucketIterator.remove();
+            }
+        }
+
+        return removedCount;
+    }
+
+    /**
+     * Finds the sightings inside a bounding box
+     *
+     * @param out List the sightings inside the box are added to
+     */
+    public synchronized void query(double south, double west, double north, double east, List<Sighting> out) {
+        if (east < west) {
+            // The box crosses the antimeridian, query both halves
+            query(south, west, north, 180, out);
+            query(south, -180, north, east, out);
+            return;
+        }
+
+        int minRow = row(south);
+        int maxRow = row(north);
+        int minColumn = column(west);
+        int maxColumn = column(east);
+
+        long bucketCount = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (bucketCount > MAX_BUCKETS_PER_QUERY || bucketCount > buckets.size()) {
+            for (Bucket bucket : buckets.values()) {
+                bucket.query(south, west, north, east, out);
+            }
+            return;
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                Bucket bucket = buckets.get(bucketKey(row, column));
+                if (bucket != null) {
+                    bucket.query(south, west, north, east, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the sightings closest to a location, searching outwards one ring of buckets at a time
+     *
+     * @param count Maximum number of sightings to return
+     * @return Sightings ordered from nearest to farthest
+     */
+    public synchronized List<Sighting> nearest(final double latitude, final double longitude, int count) {
+        List<Sighting> candidates = new ArrayList<>();
+        if (count <= 0 || sightings.isEmpty()) {
+            return candidates;
+        }
+
+        final double cosLatitude = Math.cos(Math.toRadians(latitude));
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+
+        // A bucket is never narrower than its width at the search latitude
+        double ringWidthMeters = bucketSizeDegrees * METERS_PER_DEGREE * Math.max(cosLatitude, 0.01);
+
+        int visited = 0;
+        for (int ring = 0; visited < sightings.size(); ring++) {
+            if (8 * ring > buckets.size()) {
+                // The remaining sightings are far away, looking at all of them is cheaper
+                candidates.clear();
+                candidates.addAll(sightings);
+                break;
+            }
+
+            for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+
+                for (int column = centerColumn - ring; column <= centerColumn + ring; column += step) {
+                    Bucket bucket = buckets.get(bucketKey(row, column));
+                    if (bucket != null) {
+                        candidates.addAll(bucket.sightings);
+                        visited += bucket.sightings.size();
+                    }
+                }
+            }
+
+            // Anything in a later ring is at least this far away
+            double searchedMeters = ring * ringWidthMeters;
+            if (candidates.size() >= count
+                    && kthDistance(candidates, latitude, longitude, cosLatitude, count) <= searchedMeters) {
+                break;
+            }
+        }
+
+        Collections.sort(candidates, new Comparator<Sighting>() {
+            @Override
+            public int compare(Sighting lhs, Sighting rhs) {
+                return Double.compare(distanceMeters(lhs, latitude, longitude, cosLatitude),
+                        distanceMeters(rhs, latitude, longitude, cosLatitude));
+            }
+        });
+
+        return candidates.size() > count ? new ArrayList<>(candidates.subList(0, count)) : candidates;
+    }
+
+    private static double kthDistance(List<Sighting> candidates, double latitude, double longitude,
+                                      double cosLatitude, int k) {
+        double[] distances = new double[candidates.size()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = distanceMeters(candidates.get(i), latitude, longitude, cosLatitude);
+        }
+        Arrays.sort(distances);
+        return distances[k - 1];
+    }
+
+    private static double distanceMeters(Sighting sighting, double latitude, double longitude, double cosLatitude) {
+        double dy = (sighting.getLatitude() - latitude) * METERS_PER_DEGREE;
+        double dx = (sighting.getLongitude() - longitude) * METERS_PER_DEGREE * cosLatitude;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private int row(double latitude) {
+        return (int) Math.floor(latitude / bucketSizeDegrees);
+    }
+
+    private int column(double longitude) {
+        return (int) Math.floor(longitude / bucketSizeDegrees);
+    }
+
+    private static long bucketKey(int row, int column) {
+        return ((long) row << 32) | (column & 0xffffffffL);
+    }
+
+    private static class Bucket {
+
+        final List<Sighting> sightings = new ArrayList<>();
+        long earliestExpirationMs = Long.MAX_VALUE;
+
+        void add(Sighting sighting) {
+            sightings.add(sighting);
+            earliestExpirationMs = Math.min(earliestExpirationMs, sighting.getExpirationTimestampMs());
+        }
+
+        void remove(Sighting sighting) {
+            // The earliest expiration is left as is, it is only a lower bound
+            sightings.remove(sighting);
+        }
+
+        void query(double south, double west, double north, double east, List<Sighting> out) {
+            for (int i = 0; i < sightings.size(); i++) {
+                Sighting sighting = sightings.get(i);
+                if (sighting.getLatitude() >= south && sighting.getLatitude() <= north
+                        && sighting.getLongitude() >= west && sighting.getLongitude() <= east) {
+                    out.add(sighting);
+                }
+            }
+        }
+    }
+}
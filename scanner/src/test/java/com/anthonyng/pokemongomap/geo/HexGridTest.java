@@ -0,0 +1,155 @@
+package com.anthonyng.pokemongomap.geo;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HexGridTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+    private static final double SPACING = 200;
+
+    @Test
+    public void cellCount_isCenteredHexagonalNumber() {
+        assertEquals(0, HexGrid.cellCount(0));
+        assertEquals(0, HexGrid.cellCount(-1));
+        assertEquals(1, HexGrid.cellCount(1));
+        assertEquals(7, HexGrid.cellCount(2));
+        assertEquals(19, HexGrid.cellCount(3));
+        assertEquals(2611, HexGrid.cellCount(30));
+    }
+
+    @Test
+    public void around_startsWithCenterThenDueNorth() {
+        HexGrid grid = HexGrid.around(LATITUDE, LONGITUDE, 3, SPACING);
+
+        assertEquals(19, grid.size());
+        assertEquals(LATITUDE, grid.getLatitude(0), 1e-9);
+        assertEquals(LONGITUDE, grid.getLongitude(0), 1e-9);
+
+        assertEquals(LONGITUDE, grid.getLongitude(1), 1e-9);
+        assertEquals(SPACING, distanceMeters(LATITUDE, LONGITUDE, grid.getLatitude(1), grid.getLongitude(1)), 0.01);
+        assertTrue(grid.getLatitude(1) > LATITUDE);
+    }
+
+    @Test
+    public void around_walksRingsOutwardsInSpiralOrder() {
+        int rings = 6;
+        int[] q = HexGrid.axialQ(rings);
+        int[] r = HexGrid.axialR(rings);
+        Set<Long> seen = new HashSet<>();
+
+        int index = 0;
+        for (int ring = 0; ring < rings; ring++) {
+            int ringSize = ring == 0 ? 1 : 6 * ring;
+            for (int i = 0; i < ringSize; i++, index++) {
+                assertEquals("ring of cell " + index, ring, hexDistance(q[index], r[index]));
+                assertTrue("duplicate cell " + index, seen.add(((long) q[index] << 32) | (r[index] & 0xFFFFFFFFL)));
+
+                if (i > 0) {
+                    // Each step around a ring moves to a neighbouring cell
+                    assertEquals(1, hexDistance(q[index] - q[index - 1], r[index] - r[index - 1]));
+                }
+            }
+        }
+        assertEquals(HexGrid.cellCount(rings), index);
+    }
+
+    @Test
+    public void around_neighboursAreOneSpacingApart() {
+        HexGrid grid = HexGrid.around(LATITUDE, LONGITUDE, 2, SPACING);
+
+        for (int i = 1; i < grid.size(); i++) {
+            double distance = distanceMeters(LATITUDE, LONGITUDE, grid.getLatitude(i), grid.getLongitude(i));
+            assertEquals("cell " + i, SPACING, distance, 0.5);
+        }
+    }
+
+    @Test
+    public void fill_writesAfterOffset() {
+        double[] latitudes = new double[10];
+        double[] longitudes = new double[10];
+
+        assertEquals(7, HexGrid.fill(LATITUDE, LONGITUDE, 2, SPACING, latitudes, longitudes, 3));
+
+        assertEquals(0, latitudes[2], 0);
+        assertEquals(LATITUDE, latitudes[3], 1e-9);
+        assertEquals(LONGITUDE, longitudes[3], 1e-9);
+        assertTrue(latitudes[9] != 0);
+    }
+
+    @Test
+    public void covering_coversEveryPointOfTheBox() {
+        double south = 43.64;
+        double west = -79.40;
+        double north = 43.66;
+        double east = -79.37;
+        HexGrid grid = HexGrid.covering(south, west, north, east, SPACING);
+
+        for (int i = 0; i <= 10; i++) {
+            for (int j = 0; j <= 10; j++) {
+                double latitude = south + (north - south) * i / 10;
+                double longitude = west + (east - west) * j / 10;
+
+                double nearest = Double.MAX_VALUE;
+                for (int cell = 0; cell < grid.size(); cell++) {
+                    nearest = Math.min(nearest,
+                            distanceMeters(latitude, longitude, grid.getLatitude(cell), grid.getLongitude(cell)));
+                }
+                // No point of a hexagonal cell is further than spacing / sqrt(3) from its center
+                assertTrue(latitude + "," + longitude + " is " + nearest + " m from a cell",
+                        nearest <= SPACING / Math.sqrt(3) + 1);
+            }
+        }
+    }
+
+    @Test
+    public void covering_leavesOutCellsFarOutsideTheBox() {
+        double south = 43.64;
+        double west = -79.40;
+        double north = 43.66;
+        double east = -79.37;
+        HexGrid grid = HexGrid.covering(south, west, north, east, SPACING);
+
+        double marginLatitude = SPACING / 2 / HexGrid.METERS_PER_DEGREE;
+        double marginLongitude = marginLatitude / Math.cos(Math.toRadians(43.65));
+        for (int i = 0; i < grid.size(); i++) {
+            assertTrue(grid.getLatitude(i) >= south - marginLatitude - 1e-9);
+            assertTrue(grid.getLatitude(i) <= north + marginLatitude + 1e-9);
+            assertTrue(grid.getLongitude(i) >= west - marginLongitude - 1e-9);
+            assertTrue(grid.getLongitude(i) <= east + marginLongitude + 1e-9);
+        }
+    }
+
+    @Test
+    public void covering_handlesBoxAcrossAntimeridian() {
+        HexGrid grid = HexGrid.covering(-17.01, 179.99, -16.99, -179.99, SPACING);
+
+        assertTrue(grid.size() > 0);
+        boolean east = false;
+        boolean west = false;
+        for (int i = 0; i < grid.size(); i++) {
+            double longitude = grid.getLongitude(i);
+            assertTrue(longitude >= -180 && longitude <= 180);
+            east |= longitude > 0;
+            west |= longitude < 0;
+        }
+        assertTrue(east && west);
+    }
+
+    private static int hexDistance(int q, int r) {
+        return (Math.abs(q) + Math.abs(r) + Math.abs(q + r)) / 2;
+    }
+
+    private static double distanceMeters(double fromLatitude, double fromLongitude,
+                                         double toLatitude, double toLongitude) {
+        double north = (toLatitude - fromLatitude) * HexGrid.METERS_PER_DEGREE;
+        double east = (toLongitude - fromLongitude) * HexGrid.METERS_PER_DEGREE
+                * Math.cos(Math.toRadians((fromLatitude + toLatitude) / 2));
+        return Math.sqrt(north * north + east * east);
+    }
+}
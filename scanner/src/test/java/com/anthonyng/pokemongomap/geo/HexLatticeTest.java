@@ -0,0 +1,139 @@
+package com.anthonyng.pokemongomap.geo;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HexLatticeTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+    private static final double SPACING = 200;
+
+    @Test
+    public void cellAt_roundTripsThroughCellCenter() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long key = lattice.cellAt(LATITUDE, LONGITUDE);
+
+        double latitude = lattice.latitudeOf(key);
+        double longitude = lattice.longitudeOf(key);
+
+        assertEquals(key, lattice.cellAt(latitude, longitude));
+        assertTrue(distanceMeters(LATITUDE, LONGITUDE, latitude, longitude) <= SPACING / Math.sqrt(3) + 0.01);
+    }
+
+    @Test
+    public void cellAt_picksNearestCellCenter() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long[] keys = new long[HexGrid.cellCount(3)];
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            double latitude = LATITUDE + (random.nextDouble() - 0.5) * 0.01;
+            double longitude = LONGITUDE + (random.nextDouble() - 0.5) * 0.01;
+            long key = lattice.cellAt(latitude, longitude);
+            double distance = distanceMeters(latitude, longitude, lattice.latitudeOf(key), lattice.longitudeOf(key));
+
+            // Rounding in axial coordinates alone would sometimes pick a neighbour
+            int count = lattice.cellsAround(key, 3, keys, 0);
+            for (int j = 1; j < count; j++) {
+                double neighbourDistance = distanceMeters(latitude, longitude,
+                        lattice.latitudeOf(keys[j]), lattice.longitudeOf(keys[j]));
+                assertTrue(latitude + "," + longitude, distance <= neighbourDistance + 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void keys_packNegativeCoordinatesAndLevel() {
+        HexLattice lattice = new HexLattice(SPACING, 7);
+        // South and west of the origin, so both axial coordinates are negative
+        long key = lattice.cellAt(-33.8688, -151.2093);
+
+        assertEquals(7, HexLattice.levelOf(key));
+        assertEquals(-33.8688, lattice.latitudeOf(key), 0.01);
+        assertEquals(-151.2093, lattice.longitudeOf(key), 0.01);
+        assertNotEquals(key, new HexLattice(SPACING, 8).cellAt(-33.8688, -151.2093));
+    }
+
+    @Test
+    public void cellsAround_matchesGridOrderAndDistances() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long[] keys = new long[HexGrid.cellCount(4) + 2];
+
+        assertEquals(HexGrid.cellCount(4), lattice.cellsAround(LATITUDE, LONGITUDE, 4, keys, 2));
+
+        long center = lattice.cellAt(LATITUDE, LONGITUDE);
+        assertEquals(center, keys[2]);
+
+        Set<Long> unique = new HashSet<>();
+        int index = 2;
+        for (int ring = 0; ring < 4; ring++) {
+            int ringSize = ring == 0 ? 1 : 6 * ring;
+            for (int i = 0; i < ringSize; i++, index++) {
+                assertEquals(ring, HexLattice.distance(center, keys[index]));
+                assertTrue(unique.add(keys[index]));
+            }
+        }
+    }
+
+    @Test
+    public void cellsAround_sharesCellsBetweenNearbyCenters() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long[] first = new long[HexGrid.cellCount(3)];
+        long[] second = new long[HexGrid.cellCount(3)];
+        lattice.cellsAround(LATITUDE, LONGITUDE, 3, first, 0);
+        lattice.cellsAround(LATITUDE + 0.0018, LONGITUDE, 3, second, 0);
+
+        // One cell north, so the grids overlap in more than half of their cells
+        Set<Long> shared = new HashSet<>();
+        for (long key : first) {
+            shared.add(key);
+        }
+        int overlap = 0;
+        for (long key : second) {
+            if (shared.contains(key)) {
+                overlap++;
+            }
+        }
+        assertTrue("overlap " + overlap, overlap >= 12);
+    }
+
+    @Test
+    public void sublattice_neverSharedByNeighbours() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long[] keys = new long[7];
+        lattice.cellsAround(LATITUDE, LONGITUDE, 2, keys, 0);
+
+        int center = HexLattice.sublattice(keys[0]);
+        for (int i = 1; i < keys.length; i++) {
+            assertNotEquals(center, HexLattice.sublattice(keys[i]));
+        }
+    }
+
+    @Test
+    public void cellAt_usesSeparateCellsOnEachSideOfBandEdge() {
+        HexLattice lattice = new HexLattice(SPACING, 0);
+        long south = lattice.cellAt(43.9999, LONGITUDE);
+        long north = lattice.cellAt(44.0001, LONGITUDE);
+
+        assertNotEquals(south, north);
+        // Each cell still maps back near the location it came from
+        assertEquals(43.9999, lattice.latitudeOf(south), 0.002);
+        assertEquals(44.0001, lattice.latitudeOf(north), 0.002);
+        assertEquals(LONGITUDE, lattice.longitudeOf(south), 0.003);
+        assertEquals(LONGITUDE, lattice.longitudeOf(north), 0.003);
+    }
+
+    private static double distanceMeters(double fromLatitude, double fromLongitude,
+                                         double toLatitude, double toLongitude) {
+        double north = (toLatitude - fromLatitude) * HexGrid.METERS_PER_DEGREE;
+        double east = (toLongitude - fromLongitude) * HexGrid.METERS_PER_DEGREE
+                * Math.cos(Math.toRadians((fromLatitude + toLatitude) / 2));
+        return Math.sqrt(north * north + east * east);
+    }
+}
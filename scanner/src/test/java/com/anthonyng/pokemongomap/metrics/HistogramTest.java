@@ -0,0 +1,89 @@
+package com.anthonyng.pokemongomap.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketOf_givesSmallValuesABucketEach() {
+        for (int micros = 0; micros < 16; micros++) {
+            assertEquals(micros, Histogram.bucketOf(micros));
+            assertEquals(micros, Histogram.upperBoundOf(micros));
+        }
+    }
+
+    @Test
+    public void bucketOf_isMonotonicAndContiguous() {
+        int previous = Histogram.bucketOf(0);
+        for (long micros = 1; micros < 1 << 20; micros++) {
+            int bucket = Histogram.bucketOf(micros);
+            assertTrue("bucket of " + micros, bucket == previous || bucket == previous + 1);
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void upperBoundOf_isLargestValueOfBucket() {
+        for (int bucket = 0; bucket < 200; bucket++) {
+            long upperBound = Histogram.upperBoundOf(bucket);
+            assertEquals("bucket " + bucket, bucket, Histogram.bucketOf(upperBound));
+            assertEquals("bucket " + bucket, bucket + 1, Histogram.bucketOf(upperBound + 1));
+        }
+    }
+
+    @Test
+    public void upperBoundOf_staysWithinEighthOfValue() {
+        for (long micros = 16; micros < 1L << 36; micros = micros * 3 / 2 + 1) {
+            long upperBound = Histogram.upperBoundOf(Histogram.bucketOf(micros));
+            assertTrue(micros + " rounds to " + upperBound, upperBound >= micros && upperBound <= micros * 1.125 + 1);
+        }
+    }
+
+    @Test
+    public void bucketOf_clampsHugeValuesToLastBucket() {
+        assertEquals(Histogram.bucketOf(Long.MAX_VALUE), Histogram.bucketOf(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    public void percentileMicros_readsFromRecordedValues() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentileMicros(50));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.recordMicros(i * 100);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(10000, histogram.getMaxMicros());
+        assertEquals(5050, histogram.getMeanMicros());
+        long p50 = histogram.percentileMicros(50);
+        assertTrue("p50 " + p50, p50 >= 5000 && p50 <= 5000 * 1.125);
+        // Never reported above the largest value seen
+        assertEquals(10000, histogram.percentileMicros(100));
+    }
+
+    @Test
+    public void recordNanos_convertsAndClampsNegativeValues() {
+        Histogram histogram = new Histogram();
+        histogram.recordNanos(5000);
+        histogram.recordMicros(-3);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(5, histogram.getMaxMicros());
+        assertEquals(0, histogram.percentileMicros(50));
+    }
+
+    @Test
+    public void reset_clearsEverything() {
+        Histogram histogram = new Histogram();
+        histogram.recordMicros(1000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getMeanMicros());
+        assertEquals(0, histogram.percentileMicros(99));
+    }
+}
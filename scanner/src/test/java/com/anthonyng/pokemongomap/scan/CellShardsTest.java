@@ -0,0 +1,131 @@
+package com.anthonyng.pokemongomap.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CellShardsTest {
+
+    @Test
+    public void take_dealsCellsInTurn() throws Exception {
+        CellShards shards = new CellShards(cells(4), 2);
+
+        assertEquals(0, shards.take(0).getKey());
+        assertEquals(1, shards.take(1).getKey());
+        assertEquals(2, shards.take(0).getKey());
+        assertEquals(3, shards.take(1).getKey());
+    }
+
+    @Test
+    public void take_stealsFromFarEndOfLargestShard() throws Exception {
+        CellShards shards = new CellShards(cells(6), 2);
+
+        // Shard 1 holds 1, 3 and 5
+        assertEquals(0, shards.take(0).getKey());
+        assertEquals(2, shards.take(0).getKey());
+        assertEquals(4, shards.take(0).getKey());
+        assertEquals(5, shards.take(0).getKey());
+        assertEquals(1, shards.take(1).getKey());
+    }
+
+    @Test
+    public void take_returnsNullOnceEveryCellIsFinished() throws Exception {
+        CellShards shards = new CellShards(cells(1), 2);
+
+        assertNotNull(shards.take(0));
+        shards.finish();
+        assertNull(shards.take(0));
+        assertNull(shards.take(1));
+    }
+
+    @Test
+    public void retire_handsCellsToOtherShards() throws Exception {
+        CellShards shards = new CellShards(cells(6), 3);
+
+        ScanCell failed = shards.take(0);
+        assertTrue(shards.retire(0, failed));
+        assertNull(shards.take(0));
+
+        List<Long> taken = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ScanCell cell = shards.take(i % 2 + 1);
+            taken.add(cell.getKey());
+            shards.finish();
+        }
+        assertTrue(taken.contains(0L));
+        assertTrue(taken.contains(3L));
+        assertNull(shards.take(1));
+    }
+
+    @Test
+    public void retire_refusesLastShard() throws Exception {
+        CellShards shards = new CellShards(cells(2), 2);
+
+        assertTrue(shards.retire(0, null));
+        assertFalse(shards.retire(1, shards.take(1)));
+    }
+
+    @Test(timeout = 5000)
+    public void take_waitsForCellsHandedOverLate() throws Exception {
+        final CellShards shards = new CellShards(cells(2), 2);
+        final ScanCell slowCell = shards.take(0);
+        assertNotNull(shards.take(1));
+        shards.finish();
+
+        // Shard 1 is drained but the cell of shard 0 is still being worked on
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                shards.retire(0, slowCell);
+            }
+        }).start();
+
+        assertSame(slowCell, shards.take(1));
+    }
+
+    @Test
+    public void cancel_dropsCellsNotHandedOut() throws Exception {
+        CellShards shards = new CellShards(cells(3), 1);
+        assertNotNull(shards.take(0));
+
+        assertEquals(2, shards.cancel());
+        assertNull(shards.take(0));
+    }
+
+    @Test(timeout = 5000)
+    public void cancel_wakesWaitingWorkers() throws Exception {
+        final CellShards shards = new CellShards(cells(1), 1);
+        assertNotNull(shards.take(0));
+
+        // The only cell is never finished, so the next take waits until the scan is cancelled
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                shards.cancel();
+            }
+        }).start();
+
+        assertNull(shards.take(0));
+    }
+
+    private static List<ScanCell> cells(int count) {
+        List<ScanCell> cells = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cells.add(new ScanCell(i, i, i));
+        }
+        return cells;
+    }
+}
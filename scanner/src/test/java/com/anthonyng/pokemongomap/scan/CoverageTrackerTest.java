@@ -0,0 +1,119 @@
+package com.anthonyng.pokemongomap.scan;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CoverageTrackerTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+    private static final long RESCAN_AFTER_MS = 1000;
+
+    @Test
+    public void hasMovedAway_onlyPastThreshold() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        assertTrue(tracker.hasMovedAway(LATITUDE, LONGITUDE));
+
+        tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 3), 0);
+
+        assertFalse(tracker.hasMovedAway(LATITUDE, LONGITUDE));
+        // About 55 m and 111 m north
+        assertFalse(tracker.hasMovedAway(LATITUDE + 0.0005, LONGITUDE));
+        assertTrue(tracker.hasMovedAway(LATITUDE + 0.001, LONGITUDE));
+    }
+
+    @Test
+    public void moveTo_skipsCellsScannedBefore() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        assertEquals(keys(0, 1, 2), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 3), 0)));
+
+        tracker.markScanned(0, 0);
+        tracker.markScanned(2, 0);
+
+        assertEquals(keys(1, 3), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 4), 500)));
+    }
+
+    @Test
+    public void moveTo_rescansCellsOlderThanRescanAge() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 0);
+        tracker.markScanned(0, 0);
+        tracker.markScanned(1, 600);
+
+        assertEquals(keys(), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 999)));
+        assertEquals(keys(0), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 1000)));
+        assertEquals(keys(0, 1), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 1600)));
+
+        tracker.markScanned(0, 1600);
+        assertEquals(keys(1), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 1700)));
+    }
+
+    @Test
+    public void moveTo_retiresCellsThatLeftTheArea() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 3), 0);
+        tracker.markScanned(0, 0);
+        tracker.markScanned(1, 0);
+        tracker.markScanned(2, 0);
+
+        assertEquals(keys(3), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(1, 4), 100)));
+        assertEquals(1, tracker.getLastRetiredCount());
+
+        // Cell 0 was forgotten when it left, so it is scanned when it comes back
+        assertEquals(keys(0, 3), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 4), 200)));
+        assertEquals(0, tracker.getLastRetiredCount());
+    }
+
+    @Test
+    public void markScanned_ignoresCellsOutsideTheArea() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 0);
+        tracker.markScanned(5, 0);
+
+        assertEquals(keys(5), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(5, 6), 100)));
+    }
+
+    @Test
+    public void reset_forgetsEverything() {
+        CoverageTracker tracker = new CoverageTracker(100, RESCAN_AFTER_MS);
+        tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 0);
+        tracker.markScanned(0, 0);
+        tracker.markScanned(1, 0);
+
+        tracker.reset();
+
+        assertTrue(tracker.hasMovedAway(LATITUDE, LONGITUDE));
+        assertEquals(keys(0, 1), keys(tracker.moveTo(LATITUDE, LONGITUDE, cells(0, 2), 100)));
+    }
+
+    /**
+     * @return Cells with the keys from (inclusive) to (exclusive)
+     */
+    private static List<ScanCell> cells(int from, int to) {
+        List<ScanCell> cells = new ArrayList<>();
+        for (int key = from; key < to; key++) {
+            cells.add(new ScanCell(key, LATITUDE, LONGITUDE));
+        }
+        return cells;
+    }
+
+    private static List<Long> keys(List<ScanCell> cells) {
+        List<Long> keys = new ArrayList<>();
+        for (ScanCell cell : cells) {
+            keys.add(cell.getKey());
+        }
+        return keys;
+    }
+
+    private static List<Long> keys(long... keys) {
+        List<Long> list = new ArrayList<>();
+        for (long key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+}
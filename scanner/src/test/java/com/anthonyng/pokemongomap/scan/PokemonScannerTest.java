@@ -0,0 +1,132 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.metrics.PipelineMetrics;
+import com.anthonyng.pokemongomap.sighting.Sighting;
+import com.anthonyng.pokemongomap.sighting.SightingFilter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PokemonScannerTest {
+
+    @Test(timeout = 10000)
+    public void scan_rescansCellsOfAccountThatFailsAfterOthersDrained() throws Exception {
+        // The failing account only gives up after the working account has run out of cells
+        SessionPool failingPool = new SessionPool(new TestSessionFactory(300, true), 1);
+        SessionPool workingPool = new SessionPool(new TestSessionFactory(0, false), 1);
+        List<ScanAccount> accounts = Arrays.asList(
+                new ScanAccount("failing", failingPool), new ScanAccount("working", workingPool));
+
+        PokemonScanner scanner = new PokemonScanner(accounts, testConfig(), SightingFilter.ACCEPT_ALL,
+                new PipelineMetrics());
+        try {
+            List<ScanCell> cells = cells(6);
+            List<CellResult> results = scanner.scan(cells).toList().toBlocking().single();
+
+            Set<Long> scannedKeys = new HashSet<>();
+            for (CellResult result : results) {
+                scannedKeys.add(result.getCell().getKey());
+            }
+            assertEquals(cells.size(), results.size());
+            assertEquals(cells.size(), scannedKeys.size());
+        } finally {
+            scanner.shutdown();
+            failingPool.shutdown();
+            workingPool.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void scan_failsWhenEveryAccountFails() throws Exception {
+        SessionPool firstPool = new SessionPool(new TestSessionFactory(0, true), 1);
+        SessionPool secondPool = new SessionPool(new TestSessionFactory(0, true), 1);
+        List<ScanAccount> accounts = Arrays.asList(
+                new ScanAccount("first", firstPool), new ScanAccount("second", secondPool));
+
+        PokemonScanner scanner = new PokemonScanner(accounts, testConfig(), SightingFilter.ACCEPT_ALL,
+                new PipelineMetrics());
+        try {
+            scanner.scan(cells(4)).toList().toBlocking().single();
+            fail("Expected the scan to fail");
+        } catch (RuntimeException e) {
+            assertEquals("map request failed", e.getMessage());
+        } finally {
+            scanner.shutdown();
+            firstPool.shutdown();
+            secondPool.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void scan_dropsCellsPastCellCap() throws Exception {
+        SessionPool pool = new SessionPool(new TestSessionFactory(0, false), 1);
+        List<ScanAccount> accounts = Collections.singletonList(new ScanAccount("account", pool));
+
+        PokemonScanner scanner = new PokemonScanner(accounts, testConfig().setMaxCellsPerScan(4),
+                SightingFilter.ACCEPT_ALL, new PipelineMetrics());
+        try {
+            List<CellResult> results = scanner.scan(cells(6)).toList().toBlocking().single();
+
+            assertEquals(4, results.size());
+            assertEquals(2, scanner.getMetrics().getDroppedCells());
+        } finally {
+            scanner.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    private static ScanConfig testConfig() {
+        return ScanConfig.create()
+                .setParallelism(1)
+                .setRequestRate(10000, 100)
+                .setAccountRequestRate(10000, 100)
+                .setSessionRequestRate(10000, 100)
+                .setCacheTimeToLiveMs(0);
+    }
+
+    private static List<ScanCell> cells(int count) {
+        List<ScanCell> cells = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            cells.add(new ScanCell(i, i * 0.001, i * 0.001));
+        }
+        return cells;
+    }
+
+    private static class TestSessionFactory implements MapSessionFactory {
+
+        private final long latencyMs;
+        private final boolean failing;
+
+        TestSessionFactory(long latencyMs, boolean failing) {
+            this.latencyMs = latencyMs;
+            this.failing = failing;
+        }
+
+        @Override
+        public MapSession login() {
+            return new MapSession() {
+                @Override
+                public List<Sighting> getCatchablePokemon(double latitude, double longitude) throws Exception {
+                    Thread.sleep(latencyMs);
+                    if (failing) {
+                        throw new IllegalStateException("map request failed");
+                    }
+                    return Collections.emptyList();
+                }
+
+                @Override
+                public long getAgeMs(long nowMs) {
+                    return 0;
+                }
+            };
+        }
+    }
+}
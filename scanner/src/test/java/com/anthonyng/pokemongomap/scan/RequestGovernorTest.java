@@ -0,0 +1,178 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.pokegoapi.exceptions.RemoteServerException;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscription;
+import rx.subscriptions.BooleanSubscription;
+import rx.subscriptions.Subscriptions;
+
+import static org.junit.Assert.*;
+
+public class RequestGovernorTest {
+
+    private final Subscription running = Subscriptions.empty();
+
+    @Test(timeout = 5000)
+    public void execute_retriesWhenServerPushesBack() throws Exception {
+        RequestGovernor governor = new RequestGovernor(testConfig().setBackoff(10, 10));
+        FailingRequest request = new FailingRequest(2, new RemoteServerException("busy"));
+
+        assertEquals("done", governor.execute("account", "session", running, request));
+        assertEquals(3, request.calls.get());
+        assertEquals(2, governor.getRetries());
+        assertEquals(0, governor.getFailures());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_givesUpAfterMaxAttempts() throws Exception {
+        RequestGovernor governor = new RequestGovernor(testConfig().setBackoff(1, 1).setMaxRequestAttempts(3));
+        FailingRequest request = new FailingRequest(Integer.MAX_VALUE, new RemoteServerException("busy"));
+
+        try {
+            governor.execute("account", "session", running, request);
+            fail("Expected the request to fail");
+        } catch (RemoteServerException e) {
+            assertEquals(3, request.calls.get());
+            assertEquals(2, governor.getRetries());
+            assertEquals(1, governor.getFailures());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void execute_doesNotRetryOtherErrors() throws Exception {
+        RequestGovernor governor = new RequestGovernor(testConfig());
+        FailingRequest request = new FailingRequest(1, new IOException("offline"));
+
+        try {
+            governor.execute("account", "session", running, request);
+            fail("Expected the request to fail");
+        } catch (IOException e) {
+            assertEquals(1, request.calls.get());
+            assertEquals(0, governor.getRetries());
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void execute_backsOffBetweenHalfAndFullDelay() throws Exception {
+        RequestGovernor governor = new RequestGovernor(testConfig().setBackoff(200, 1000));
+        FailingRequest request = new FailingRequest(1, new RemoteServerException("busy"));
+
+        long startNanos = System.nanoTime();
+        governor.execute("account", "session", running, request);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 100 && elapsedMs < 400);
+    }
+
+    @Test(timeout = 5000)
+    public void execute_coolsDownOnlyTheAccountThatWasPushedBack() throws Exception {
+        final RequestGovernor governor = new RequestGovernor(testConfig().setBackoff(1000, 1000));
+        final FailingRequest pushedBack = new FailingRequest(1, new RemoteServerException("busy"));
+        Thread retrying = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    governor.execute("slow", "first", running, pushedBack);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        retrying.start();
+        while (pushedBack.calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(20);
+
+        // The retry waits between 500 and 1000 ms, other requests of the account wait with it
+        long startNanos = System.nanoTime();
+        governor.execute("fast", "second", running, new FailingRequest(0, null));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 200);
+
+        startNanos = System.nanoTime();
+        governor.execute("slow", "third", running, new FailingRequest(0, null));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) >= 300);
+
+        retrying.join();
+        assertEquals(2, pushedBack.calls.get());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_skipsRequestOfCancelledScan() throws Exception {
+        RequestGovernor governor = new RequestGovernor(testConfig());
+        FailingRequest request = new FailingRequest(0, null);
+
+        assertNull(governor.execute("account", "session", Subscriptions.unsubscribed(), request));
+        assertEquals(0, request.calls.get());
+    }
+
+    @Test(timeout = 5000)
+    public void execute_givesUpDuringCooldownWhenScanIsCancelled() throws Exception {
+        final RequestGovernor governor = new RequestGovernor(testConfig().setBackoff(4000, 4000));
+        final FailingRequest pushedBack = new FailingRequest(1, new RemoteServerException("busy"));
+        final BooleanSubscription cancellation = new BooleanSubscription();
+        final Object[] result = {"not finished"};
+        Thread retrying = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result[0] = governor.execute("account", "session", cancellation, pushedBack);
+                } catch (Exception e) {
+                    result[0] = e;
+                }
+            }
+        });
+        retrying.start();
+        while (pushedBack.calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+
+        // The retry would wait at least 2 s, cancelling ends the wait
+        long startNanos = System.nanoTime();
+        cancellation.unsubscribe();
+        retrying.join();
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) < 1000);
+        assertNull(result[0]);
+        assertEquals(1, pushedBack.calls.get());
+        assertEquals(0, governor.getQueueDepth());
+    }
+
+    private static ScanConfig testConfig() {
+        return ScanConfig.create()
+                .setRequestRate(1000, 10)
+                .setAccountRequestRate(1000, 10)
+                .setSessionRequestRate(1000, 10);
+    }
+
+    /**
+     * Throws the given error for the first calls, then succeeds
+     */
+    private static class FailingRequest implements Callable<String> {
+
+        final AtomicInteger calls = new AtomicInteger();
+        private final int failures;
+        private final Exception error;
+
+        FailingRequest(int failures, Exception error) {
+            this.failures = failures;
+            this.error = error;
+        }
+
+        @Override
+        public String call() throws Exception {
+            if (calls.incrementAndGet() <= failures) {
+                throw error;
+            }
+            return "done";
+        }
+    }
+}
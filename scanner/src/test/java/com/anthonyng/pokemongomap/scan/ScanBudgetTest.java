@@ -0,0 +1,58 @@
+package com.anthonyng.pokemongomap.scan;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ScanBudgetTest {
+
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void available_shrinksOnlyByRequestsMade() {
+        ScanBudget budget = new ScanBudget(100, 20);
+
+        assertEquals(100, budget.available(0, 80, false));
+        // Asking leaves the budget alone, a burst answered from the cache costs nothing
+        assertEquals(100, budget.available(10, 80, false));
+
+        budget.onRequestsMade(30, 20);
+        assertEquals(70, budget.available(30, 80, false));
+
+        budget.onRequestsMade(90, 40);
+        assertEquals(0, budget.available(50, 80, false));
+    }
+
+    @Test
+    public void available_refillsAfterAnHour() {
+        ScanBudget budget = new ScanBudget(100, 20);
+        budget.onRequestsMade(100, 0);
+
+        assertEquals(0, budget.available(HOUR_MS - 1, 80, false));
+        assertEquals(100, budget.available(HOUR_MS, 80, false));
+    }
+
+    @Test
+    public void available_isZeroOnLowBatteryUnlessCharging() {
+        ScanBudget budget = new ScanBudget(100, 20);
+
+        assertEquals(0, budget.available(0, 19, false));
+        assertEquals(100, budget.available(0, 19, true));
+        assertEquals(100, budget.available(0, 20, false));
+        assertEquals(100, budget.available(0, -1, false));
+    }
+
+    @Test
+    public void getCellsPerMilliAmpHour_needsChargeDrawn() {
+        ScanBudget budget = new ScanBudget(100, 20);
+        budget.onCellsScanned(50);
+        assertEquals(-1, budget.getCellsPerMilliAmpHour(), 0);
+
+        budget.onChargeMeasured(2000000);
+        budget.onChargeMeasured(1990000);
+
+        assertEquals(5, budget.getCellsPerMilliAmpHour(), 1e-9);
+    }
+}
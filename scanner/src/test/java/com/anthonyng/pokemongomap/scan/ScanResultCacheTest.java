@@ -0,0 +1,62 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanResultCacheTest {
+
+    private static final List<Sighting> SIGHTINGS = Collections.singletonList(
+            new Sighting("a", 1, 1, "Bulbasaur", 43.6532, -79.3832, 10000));
+
+    @Test
+    public void get_returnsSightingsWithinTimeToLive() {
+        ScanResultCache cache = new ScanResultCache(1000, 10);
+        cache.put(1, SIGHTINGS, 5000);
+
+        assertSame(SIGHTINGS, cache.get(1, 5000));
+        assertSame(SIGHTINGS, cache.get(1, 5999));
+        assertNull(cache.get(2, 5000));
+    }
+
+    @Test
+    public void get_dropsEntriesOnceTimeToLiveHasPassed() {
+        ScanResultCache cache = new ScanResultCache(1000, 10);
+        cache.put(1, SIGHTINGS, 5000);
+
+        assertNull(cache.get(1, 6000));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void put_replacesOlderResult() {
+        ScanResultCache cache = new ScanResultCache(1000, 10);
+        List<Sighting> empty = Collections.emptyList();
+        cache.put(1, SIGHTINGS, 5000);
+        cache.put(1, empty, 5800);
+
+        assertSame(empty, cache.get(1, 6500));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedCell() {
+        ScanResultCache cache = new ScanResultCache(1000, 2);
+        cache.put(1, SIGHTINGS, 5000);
+        cache.put(2, SIGHTINGS, 5000);
+
+        // Reading cell 1 makes cell 2 the least recently used
+        assertNotNull(cache.get(1, 5100));
+        cache.put(3, SIGHTINGS, 5200);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1, 5300));
+        assertNull(cache.get(2, 5300));
+        assertNotNull(cache.get(3, 5300));
+    }
+}
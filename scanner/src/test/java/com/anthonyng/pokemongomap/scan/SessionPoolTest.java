@@ -0,0 +1,109 @@
+package com.anthonyng.pokemongomap.scan;
+
+import com.anthonyng.pokemongomap.sighting.Sighting;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import rx.subscriptions.BooleanSubscription;
+
+import static org.junit.Assert.*;
+
+public class SessionPoolTest {
+
+    @Test(timeout = 5000)
+    public void acquire_failsWhenEveryLoginFails() throws Exception {
+        SessionPool sessionPool = new SessionPool(new FailingSessionFactory(), 2);
+        sessionPool.warmUp();
+
+        try {
+            sessionPool.acquire(new BooleanSubscription());
+            fail("Expected the login error");
+        } catch (IllegalStateException e) {
+            assertEquals("server down", e.getMessage());
+        } finally {
+            sessionPool.shutdown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void acquire_takesOverSlotOfFailedBackgroundLogin() throws Exception {
+        final FailingSessionFactory sessionFactory = new FailingSessionFactory();
+        SessionPool sessionPool = new SessionPool(sessionFactory, 1);
+
+        // The only slot is taken by a background login that fails while acquire is waiting
+        sessionFactory.blocked = true;
+        sessionPool.warmUp();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                sessionFactory.blocked = false;
+            }
+        }).start();
+
+        try {
+            sessionPool.acquire(new BooleanSubscription());
+            fail("Expected the login error");
+        } catch (IllegalStateException e) {
+            // The background login and the one made by acquire itself
+            assertEquals(2, sessionFactory.attempts);
+        } finally {
+            sessionPool.shutdown();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void acquire_givesUpWhenCancelled() throws Exception {
+        SessionPool sessionPool = new SessionPool(new WorkingSessionFactory(), 1);
+        MapSession session = sessionPool.acquire(new BooleanSubscription());
+        assertNotNull(session);
+
+        BooleanSubscription cancellation = new BooleanSubscription();
+        cancellation.unsubscribe();
+        assertNull(sessionPool.acquire(cancellation));
+
+        sessionPool.release(session);
+        assertSame(session, sessionPool.acquire(new BooleanSubscription()));
+        sessionPool.shutdown();
+    }
+
+    private static class FailingSessionFactory implements MapSessionFactory {
+
+        volatile boolean blocked;
+        volatile int attempts;
+
+        @Override
+        public MapSession login() throws Exception {
+            attempts++;
+            while (blocked) {
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException("server down");
+        }
+    }
+
+    private static class WorkingSessionFactory implements MapSessionFactory {
+
+        @Override
+        public MapSession login() {
+            return new MapSession() {
+                @Override
+                public List<Sighting> getCatchablePokemon(double latitude, double longitude) {
+                    return Collections.emptyList();
+                }
+
+                @Override
+                public long getAgeMs(long nowMs) {
+                    return 0;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.anthonyng.pokemongomap.scan;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsZeroRate() {
+        new TokenBucket(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsEmptyBurst() {
+        new TokenBucket(1, 0);
+    }
+
+    @Test
+    public void reserve_handsOutBurstWithoutWaiting() {
+        TokenBucket bucket = new TokenBucket(1, 3);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+    }
+
+    @Test
+    public void reserve_queuesPermitsPastBurstAtSteadyRate() {
+        TokenBucket bucket = new TokenBucket(10, 1);
+        bucket.reserve();
+
+        long firstWaitMs = TimeUnit.NANOSECONDS.toMillis(bucket.reserve());
+        long secondWaitMs = TimeUnit.NANOSECONDS.toMillis(bucket.reserve());
+
+        assertTrue("first wait " + firstWaitMs, firstWaitMs > 80 && firstWaitMs <= 100);
+        assertTrue("second wait " + secondWaitMs, secondWaitMs > 180 && secondWaitMs <= 200);
+    }
+
+    @Test
+    public void reserve_refillsNoMoreThanBurstWhileIdle() throws Exception {
+        TokenBucket bucket = new TokenBucket(1000, 2);
+        bucket.reserve();
+        bucket.reserve();
+
+        Thread.sleep(50);
+
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertTrue(bucket.reserve() > 0);
+    }
+
+    @Test(timeout = 5000)
+    public void acquire_pacesCallers() throws Exception {
+        TokenBucket bucket = new TokenBucket(100, 1);
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            bucket.acquire();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        assertTrue("elapsed " + elapsedMs, elapsedMs >= 90);
+    }
+}
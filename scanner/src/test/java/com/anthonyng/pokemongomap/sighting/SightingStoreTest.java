@@ -0,0 +1,171 @@
+package com.anthonyng.pokemongomap.sighting;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SightingStoreTest {
+
+    private static final double LATITUDE = 43.6532;
+    private static final double LONGITUDE = -79.3832;
+
+    @Test
+    public void add_rejectsDuplicates() {
+        SightingStore store = new SightingStore();
+
+        assertTrue(store.add(sighting("a", LATITUDE, LONGITUDE, 1000)));
+        assertFalse(store.add(sighting("a", LATITUDE, LONGITUDE, 1000)));
+        assertTrue(store.add(sighting("b", LATITUDE, LONGITUDE, 1000)));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void remove_dropsSightingFromQueries() {
+        SightingStore store = new SightingStore();
+        Sighting sighting = sighting("a", LATITUDE, LONGITUDE, 1000);
+        store.add(sighting);
+
+        assertTrue(store.remove(sighting));
+        assertFalse(store.remove(sighting));
+        assertFalse(store.contains(sighting));
+
+        List<Sighting> found = new ArrayList<>();
+        store.query(LATITUDE - 1, LONGITUDE - 1, LATITUDE + 1, LONGITUDE + 1, found);
+        assertTrue(found.isEmpty());
+        assertTrue(store.nearest(LATITUDE, LONGITUDE, 1).isEmpty());
+    }
+
+    @Test
+    public void query_findsSightingsInsideBoxAcrossBuckets() {
+        SightingStore store = new SightingStore();
+        Sighting inside = sighting("inside", 43.655, -79.385, 1000);
+        Sighting otherBucket = sighting("otherBucket", 43.662, -79.371, 1000);
+        Sighting outside = sighting("outside", 43.670, -79.385, 1000);
+        store.add(inside);
+        store.add(otherBucket);
+        store.add(outside);
+
+        List<Sighting> found = new ArrayList<>();
+        store.query(43.650, -79.390, 43.665, -79.370, found);
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(inside));
+        assertTrue(found.contains(otherBucket));
+    }
+
+    @Test
+    public void query_handlesBoxAcrossAntimeridian() {
+        SightingStore store = new SightingStore();
+        Sighting east = sighting("east", -17, 179.995, 1000);
+        Sighting west = sighting("west", -17, -179.995, 1000);
+        store.add(east);
+        store.add(west);
+        store.add(sighting("far", -17, 170, 1000));
+
+        List<Sighting> found = new ArrayList<>();
+        store.query(-17.01, 179.99, -16.99, -179.99, found);
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(east));
+        assertTrue(found.contains(west));
+    }
+
+    @Test
+    public void nearest_matchesSortingEverySighting() {
+        SightingStore store = new SightingStore();
+        List<Sighting> all = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Sighting sighting = sighting("s" + i, LATITUDE + (random.nextDouble() - 0.5) * 0.2,
+                    LONGITUDE + (random.nextDouble() - 0.5) * 0.2, 1000);
+            store.add(sighting);
+            all.add(sighting);
+        }
+
+        final double latitude = LATITUDE + 0.013;
+        final double longitude = LONGITUDE - 0.021;
+        Collections.sort(all, new Comparator<Sighting>() {
+            @Override
+            public int compare(Sighting lhs, Sighting rhs) {
+                return Double.compare(distanceSquared(lhs, latitude, longitude),
+                        distanceSquared(rhs, latitude, longitude));
+            }
+        });
+
+        assertEquals(all.subList(0, 10), store.nearest(latitude, longitude, 10));
+    }
+
+    @Test
+    public void nearest_searchesFarBuckets() {
+        SightingStore store = new SightingStore();
+        Sighting far = sighting("far", LATITUDE + 0.5, LONGITUDE, 1000);
+        store.add(far);
+        store.add(sighting("farther", LATITUDE + 1, LONGITUDE, 1000));
+
+        List<Sighting> nearest = store.nearest(LATITUDE, LONGITUDE, 1);
+
+        assertEquals(1, nearest.size());
+        assertSame(far, nearest.get(0));
+    }
+
+    @Test
+    public void nearest_returnsFewerWhenStoreIsSmall() {
+        SightingStore store = new SightingStore();
+        store.add(sighting("a", LATITUDE, LONGITUDE, 1000));
+
+        assertEquals(1, store.nearest(LATITUDE, LONGITUDE, 5).size());
+        assertTrue(store.nearest(LATITUDE, LONGITUDE, 0).isEmpty());
+    }
+
+    @Test
+    public void removeExpired_removesSightingsExpiredAtOrBeforeNow() {
+        SightingStore store = new SightingStore();
+        Sighting expired = sighting("expired", LATITUDE, LONGITUDE, 1000);
+        Sighting expiringNow = sighting("expiringNow", LATITUDE + 0.05, LONGITUDE, 2000);
+        Sighting alive = sighting("alive", LATITUDE, LONGITUDE, 3000);
+        store.add(expired);
+        store.add(expiringNow);
+        store.add(alive);
+
+        List<Sighting> removed = new ArrayList<>();
+        assertEquals(2, store.removeExpired(2000, removed));
+
+        assertEquals(new HashSet<>(removed), new HashSet<>(Arrays.asList(expired, expiringNow)));
+        assertEquals(1, store.size());
+        assertTrue(store.contains(alive));
+        assertEquals(0, store.removeExpired(2000, null));
+        assertEquals(1, store.removeExpired(3000, null));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void removeExpired_afterRemoveOfEarliestSighting() {
+        SightingStore store = new SightingStore();
+        Sighting early = sighting("early", LATITUDE, LONGITUDE, 1000);
+        Sighting late = sighting("late", LATITUDE, LONGITUDE, 5000);
+        store.add(early);
+        store.add(late);
+        store.remove(early);
+
+        assertEquals(0, store.removeExpired(2000, null));
+        assertEquals(1, store.removeExpired(5000, null));
+    }
+
+    private static Sighting sighting(String spawnPointId, double latitude, double longitude, long expirationMs) {
+        return new Sighting(spawnPointId, 1, 1, "Bulbasaur", latitude, longitude, expirationMs);
+    }
+
+    private static double distanceSquared(Sighting sighting, double latitude, double longitude) {
+        double dy = sighting.getLatitude() - latitude;
+        double dx = (sighting.getLongitude() - longitude) * Math.cos(Math.toRadians(latitude));
+        return dx * dx + dy * dy;
+    }
+}